@@ -1,10 +1,14 @@
 import app.App;
+import app.BatchRunner;
 import tree.AVLTree;
+import tree.AbstractBST;
 import tree.BST;
 import tree.JolaTree;
 import tree.RBT;
 import util.ANSICode;
+import values.NumberOrString;
 
+import java.nio.file.Path;
 import java.util.*;
 
 public class Main {
@@ -14,8 +18,20 @@ public class Main {
 		if(args.contains("--color"))
 			ANSICode.enable();
 
-		// new App(args.contains("--rb") ? new RBT<>() : args.contains("--avl") ? new AVLTree<>() : new BST<>());
-		new App(new JolaTree<>());
+		int batch = args.indexOf("--batch");
+		if (batch >= 0) {
+			if (batch + 1 >= args.size()) {
+				System.err.println("Usage: --batch <script> [--bst|--avl|--rb|--jola]");
+				System.exit(1);
+			}
+
+			// Make sure nothing can open a display
+			System.setProperty("java.awt.headless", "true");
+			new BatchRunner(makeTree(args)).run(Path.of(args.get(batch + 1)));
+			return;
+		}
+
+		new App(makeTree(args));
 
 		/*
 		 * insert 221 11 779 73 327 215 422 799 469 159
@@ -24,4 +40,11 @@ public class Main {
 		 * delete 215 536 765
 		 */
 	}
-}
\ No newline at end of file
+
+	private static AbstractBST<NumberOrString, ?> makeTree (List<String> args) {
+		return args.contains("--rb") ? new RBT<>()
+		     : args.contains("--avl") ? new AVLTree<>()
+		     : args.contains("--bst") ? new BST<>()
+		     : new JolaTree<>();
+	}
+}
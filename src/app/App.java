@@ -2,42 +2,141 @@ package app;
 
 import app.treedrawer.*;
 import tree.AbstractBST;
-import tree.Traversal;
 import util.FontLoader;
 import util.GraphicsUtil;
 import util.Log;
+import util.StageTimer;
 import values.NumberOrString;
+import values.Tokenizer;
 
 import javax.swing.Timer;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
 import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.*;
 import java.util.List;
 
 public class App extends JFrame {
 	private static final long BLINKER_TIME = 800;
 
+	// How often to redraw while log messages are fading
+	private static final long FADE_INTERVAL = 50;
+
+	private static final StageTimer paintTimer = StageTimer.create("paint"), logTimer = StageTimer.create("log");
+
+	// The timings overlay is only refreshed this often, so that it stays readable and cheap
+	private static final long PERF_INTERVAL = 250;
+	private volatile boolean showPerf = false;
+	private List<String> perfLines = List.of();
+	private int perfWidth = 0;
+	private long lastPerfUpdate = 0;
+
 	private final AbstractBST<NumberOrString, ?> bst;
+	private final CommandInterpreter interpreter;
 	private String input = "";
 	private static final Font font = FontLoader.load("JBMono.ttf").deriveFont(12f);
 
-	private static final String STRING_MATCHING_REGEX = "\"([^\"\\\\]|\\\\.)*\"|'([^'\\\\]|\\\\.)*'";
+	// The input line as drawn, rebuilt only when the input changes
+	private String prompt = ">>> ";
+	private int promptWidth = GraphicsUtil.getRenderedStringSize(prompt, font).width;
+	private static final String BLINKER = "█";
+
+	// Log messages fade out through these instead of making a new color every frame
+	private static final int LOG_BACKGROUND_ALPHA = 200;
+	private static final Color[] logBackground = Style.Colors.alphaRamp(Style.Colors.BLACK);
+	private static final Color[][] logForeground = new Color[Log.LogLevel.values().length][];
+
+	static {
+		for (var level : Log.LogLevel.values()) logForeground[level.ordinal()] = Style.Colors.alphaRamp(level.gColor);
+	}
 
 	BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
 
+	// The tree is drawn into its own layer, so that redrawing the log and the input line doesn't redo the tree layout
+	BufferedImage treeLayer = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+	// Kept for as long as the images they draw on, rather than made again every frame
+	private Graphics2D frameGraphics = frame.createGraphics(), treeGraphics = treeLayer.createGraphics();
+
+	// What the log items are drawn with. Stored here so that the action doesn't have to be made again every frame
+	private Graphics2D logGraphics;
+	private final Log.LogItemAction logItemDrawer = this::drawLogItem;
+
+	// What was drawn last frame, to tell whether anything needs to be drawn again
+	private volatile boolean treeDirty = true, overlayDirty = true;
+	private long drawnModCount = -1, drawnLayoutVersion = -1, drawnLogVersion = -1, drawnHeatVersion = -1, lastFade = 0;
+	private boolean drawnBlinker = false;
+
+	// Wakes up for the next frame of the blinking cursor, fading log messages and timings overlay. Everything else
+	// repaints as soon as it changes
+	private final Timer animationTimer = new Timer(0, e -> animate());
+
 	private static final TreeDrawer[] styles = new TreeDrawer[] {
 		new TreeDrawerInOrder(),
 		new TreeDrawerOffset(),
 		new TreeDrawerStacked(),
 		new TreeDrawerStackedCentered(),
+		new TreeDrawerTidy(),
 	};
 	private int currStyle = 3;
+	private final Camera camera = new Camera();
 
 	public App (AbstractBST<NumberOrString, ?> bst) {
 		this.bst = bst;
+		this.interpreter = new CommandInterpreter(bst) {
+			@Override
+			protected boolean evaluateCommand (String command, Tokenizer scan) {
+				try {
+					return evaluateAppCommand(command, scan);
+				} finally {
+					// Commands are what change the tree, its heat and the log, and new log messages start fading
+					SwingUtilities.invokeLater(App.this::animate);
+				}
+			}
+
+			private boolean evaluateAppCommand (String command, Tokenizer scan) {
+				if (command.equals("perf") && !scan.hasNext()) {
+					togglePerf();
+					return true;
+				}
+				if (!command.equals("style")) return super.evaluateCommand(command, scan);
+
+				int style;
+				if (!scan.hasNextInt() || (style = scan.nextInt()) > styles.length || style <= 0) {
+					Log.err("Invalid parameter to style: Must be an int in the range [1, " + styles.length + "]");
+				} else {
+					Log.log("Set style to " + style);
+					currStyle = style - 1;
+					treeDirty = true;
+				}
+				return true;
+			}
+
+			@Override
+			protected TreeDrawer getExportDrawer () {
+				return styles[currStyle];
+			}
+
+			@Override
+			protected List<String> getHelp () {
+				var help = super.getHelp();
+				help.addAll(help.size() - 2, List.of(
+					"style <style: 1|2|3|4|5> : Sets the drawing style of the tree",
+					"    Example: \"style 1\""
+				));
+				help.add(help.size() - 2, "perf : Shows or hides the timings overlay. F3 does the same");
+				help.add("Drag to pan, scroll to zoom, and press Ctrl+0 to reset the view");
+				return help;
+			}
+		};
 
 		setTitle("Graphics BST Lab");
 		setMinimumSize(new Dimension(50, 50));
@@ -50,247 +149,243 @@ public class App extends JFrame {
 			public void keyPressed (KeyEvent e) {
 				if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
 					if (input.length() > 0) {
-						input = input.substring(0, input.length() - 1);
+						setInput(input.substring(0, input.length() - 1));
 					}
 				} else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
 					evaluateCommand();
 				} else if (e.getKeyCode() == KeyEvent.VK_MINUS && e.isControlDown()) {
 					TreeDrawer.setFontSize(TreeDrawer.getFontSize() * 0.9f);
+					treeDirty = true;
 				} else if (e.getKeyCode() == KeyEvent.VK_EQUALS && e.isControlDown()) {
 					TreeDrawer.setFontSize(TreeDrawer.getFontSize() * 1.1f);
+					treeDirty = true;
+				} else if (e.getKeyCode() == KeyEvent.VK_0 && e.isControlDown()) {
+					camera.reset();
+					treeDirty = true;
+				} else if (e.getKeyCode() == KeyEvent.VK_F3) {
+					togglePerf();
 				} else {
 					char c = e.getKeyChar();
-					if ((c + "").matches("^[ -~]$")) input += c;
+					if (c >= ' ' && c <= '~') setInput(input + c);
 				}
+				overlayDirty = true;
+				requestRepaint();
 			}
 		});
 
-		new Timer(10, e -> repaint()).start();
+		var mouse = new MouseAdapter() {
+			private int lastX, lastY;
+
+			@Override
+			public void mousePressed (MouseEvent e) {
+				lastX = e.getX();
+				lastY = e.getY();
+			}
+
+			@Override
+			public void mouseDragged (MouseEvent e) {
+				camera.pan(e.getX() - lastX, e.getY() - lastY);
+				lastX = e.getX();
+				lastY = e.getY();
+				treeDirty = true;
+				requestRepaint();
+			}
+
+			@Override
+			public void mouseWheelMoved (MouseWheelEvent e) {
+				camera.zoom(Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+				treeDirty = true;
+				requestRepaint();
+			}
+		};
+		addMouseListener(mouse);
+		addMouseMotionListener(mouse);
+		addMouseWheelListener(mouse);
+
+		for (var style : styles) style.setLayoutListener(() -> SwingUtilities.invokeLater(this::requestRepaint));
+		animationTimer.setRepeats(false);
+		SwingUtilities.invokeLater(this::animate);
 
-		evaluateCommand("help");
+		interpreter.evaluateCommand("help");
 
 		// STDIN loop
-		Scanner scan = new Scanner(System.in);
-		while (scan.hasNextLine()) {
-			String line = scan.nextLine();
-			Log.echoInput(">>> " + line, Log.NO_TERMINAL);
-			evaluateCommand(new Scanner(line));
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(System.in))) {
+			Tokenizer tokenizer = new Tokenizer("");
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Log.echoInput(">>> " + line, Log.NO_TERMINAL);
+				interpreter.evaluateCommand(tokenizer.reset(line));
+			}
+		} catch (IOException e) {
+			Log.err("Could not read from stdin: " + e.getMessage());
 		}
 	}
 
 	private void evaluateCommand () {
 		Log.echoInput(">>> " + input);
-		evaluateCommand(input);
-		input = "";
+		interpreter.evaluateCommand(input);
+		setInput("");
 	}
 
-	private void evaluateCommand (String str) {
-		evaluateCommand(new Scanner(str));
+	private void setInput (String input) {
+		this.input = input;
+		prompt = ">>> " + input;
+		promptWidth = GraphicsUtil.getRenderedStringSize(prompt, font).width;
 	}
 
-	private void evaluateCommand (Scanner scan) {
-		if (!scan.hasNext()) return;
-		String command;
-		switch (command = scan.next().toLowerCase()) {
-			case "insert" -> {
-				while (scan.hasNext()) {
-					NumberOrString v = NumberOrString.getFromScanner(scan);
-
-					if (v == null) {
-						Log.err("Bad input: \"" + scan.next() + "\" is not an int, double, or valid string.");
-						break;
-					}
+	private void togglePerf () {
+		showPerf = !showPerf;
+		lastPerfUpdate = 0;
+		overlayDirty = true;
+	}
 
-					Log.log("Adding " + v + " to the tree");
-					bst.printTreeToConsole();
-					bst.add(v);
-					Log.log("Added " + v + " to the tree");
-				}
-			}
-			case "insertrand" -> {
-				if (scan.hasNextInt()) {
-					int lo = scan.nextInt();
-					if (scan.hasNextInt()) {
-						int hi = scan.nextInt();
-						int num = 1;
-						if (scan.hasNextInt()) num = scan.nextInt();
-						StringBuilder c = new StringBuilder("insert");
-						for (int i = 0; i < num; i++) {
-							c.append(" ").append((int) (Math.random() * (hi - lo + 1)) + lo);
-						}
-						evaluateCommand(new Scanner(c.toString()));
-						break;
-					}
-				}
-				Log.err("Bad input: insertRand should be called with 2-3 int args");
-			}
-			case "clear" -> {
-				bst.clear();
-				Log.log("Cleared tree");
-			}
-			case "delete" -> {
-				while (scan.hasNext()) {
-					NumberOrString v = NumberOrString.getFromScanner(scan);
+	/**
+	 * @return A number that changes whenever the heatmap would look different, or -1 when it isn't shown
+	 */
+	private long getHeatVersion () {
+		return TreeDrawer.isHeatmap() ? bst.getHeatVersion() : -1;
+	}
 
-					if (v == null) {
-						Log.err("Bad input: \"" + scan.next() + "\" is not an int, double, or valid string.");
-						break;
-					}
+	private static boolean isBlinkerOn (long time) {
+		return time % BLINKER_TIME > BLINKER_TIME / 3;
+	}
 
-					if (!bst.contains(v)) {
-						Log.log(v + " is not in the tree");
-						break;
-					}
+	private int getLineHeight () {
+		return font.getSize() * 4 / 3;
+	}
 
-					Log.log("Deleting " + v + " from the tree");
-					bst.printTreeToConsole();
-					bst.remove(v);
-					bst.printTreeToConsole();
-					Log.log("Deleted " + v + " from the tree");
-				}
-			}
-			case "help" -> {
-				for (var line : new String[] {
-					"──── Commands ────",
-					"insert <values:number...> : Adds the values to the bst.BST",
-					"    Example: \"insert 3 1 0 2 6 4 5 9 11\"",
-					"insertRand <low:number> <high:number> [amount:number] : inserts <amount> random numbers in the range [<low>, <high>]",
-					"    Example: \"insertRand 0 99 10\"",
-					"delete <values:number...> : Deletes the values from the bst.BST",
-					"    Example: \"delete 1 2 3 4\"",
-					"style <style: 1|2|3|4> : Sets the drawing style of the tree",
-					"    Example: \"style 1\"",
-					"traverse <method: preOrder|postOrder|inOrder|reverseOrder|levelOrder> : Traverses the binary search tree using the provided method",
-					"    Example: \"traverse preOrder\"",
-					"query <attribute: numLeaves|numLevels|height|width|diameter|size|levelWidths|isFull|largest|smallest> : Gets the corresponding attribute of the bst",
-					"    Example: \"traverse preOrder\"",
-					"clear : Deletes the entire tree",
-					"help : Displays this list of commands",
-				}) Log.output(line);
-			}
-			case "style" -> {
-				int style;
-				if (!scan.hasNextInt() || (style = scan.nextInt()) > styles.length || style <= 0) {
-					Log.err("Invalid parameter to style: Must be an int in the range [1, " + styles.length + "]");
-				} else {
-					Log.log("Set style to " + style);
-					currStyle = style - 1;
-				}
-			}
-			case "traverse" -> {
-				try {
-					StringBuilder sb = new StringBuilder("[ ");
-					(switch (scan.next().toLowerCase()) {
-						case "preorder" -> new Traversal.PreOrder<>(bst);
-						case "postorder" -> new Traversal.PostOrder<>(bst);
-						case "inorder" -> new Traversal.InOrder<>(bst);
-						case "reverseorder" -> new Traversal.ReverseOrder<>(bst);
-						case "levelorder" -> new Traversal.LevelOrder<>(bst);
-						default -> throw new Exception();
-					}).forEach(i -> sb.append(i).append(" "));
-					sb.append("]");
-					Log.output(sb.toString());
-				} catch (Exception e) {
-					Log.err("Invalid parameter to traverse: Must be an one of preorder, postorder, inorder, reverseOrder, levelOrder");
-				}
-			}
-			case "query" -> {
-				if (scan.hasNext()) switch (scan.next().toLowerCase()) {
-					case "numleaves" -> Log.output(bst.countLeaves() + "");
-					case "numlevels" -> Log.output(bst.countLevels() + "");
-					case "height" -> Log.output(bst.getHeight() + "");
-					case "width" -> Log.output(bst.getWidth() + "");
-					case "diameter" -> Log.output(bst.getDiameter() + "");
-					case "size" -> Log.output(bst.size() + "");
-					case "isfull" -> Log.output("Bst is" + (bst.isFullTree() ? " " : " not ") + "full");
-					case "largest" -> Log.output(bst.getLargest() + "");
-					case "smallest" -> Log.output(bst.getSmallest() + "");
-					case "levelwidths" -> Log.output(Arrays.toString(bst.getLevelWidths()));
-					default ->
-						Log.err("Invalid parameter to query: Must be one of numLeaves, numLevels, width, height, diameter, size, levelWidths, isFull, largest, smallest");
-				}
-				else
-					Log.err("Invalid parameter to query: Must be one of numLeaves, numLevels, height, width, diameter, size, levelWidths, isFull, largest, smallest");
-			}
-			case "intersect" -> {
-				List<NumberOrString> values = new ArrayList<>();
-				while (scan.hasNext()) {
-					NumberOrString v;
-
-					if (scan.hasNextInt()) {
-						v = new NumberOrString(scan.nextInt());
-					} else if (scan.hasNextDouble()) {
-						v = new NumberOrString(scan.nextDouble());
-					} else if ((v = NumberOrString.fromStringString(scan.findInLine(STRING_MATCHING_REGEX))) != null) {
-
-					} else {
-						Log.err("Bad input: \"" + scan.next() + "\" is not an int, double, or string.");
-						break;
-					}
+	/**
+	 * Repaints whatever is animating, and sets the timer to wake up again in time for the next frame of it
+	 */
+	private void animate () {
+		long currentTime = System.currentTimeMillis();
+		requestRepaint();
 
-					values.add(v);
-				}
+		// The cursor turns on a third of the way through each blink, and off at the end of it
+		long phase = currentTime % BLINKER_TIME;
+		long delay = phase <= BLINKER_TIME / 3 ? BLINKER_TIME / 3 - phase + 1 : BLINKER_TIME - phase;
+		if (!Log.isEmpty()) delay = Math.min(delay, FADE_INTERVAL);
+		if (showPerf) delay = Math.min(delay, PERF_INTERVAL);
 
-				List<NumberOrString> intersection = new ArrayList<>(bst.intersection(values));
-				Log.output(intersection.toString());
-			}
-			default -> Log.err("Unknown command \"" + command + "\". Type \"help\" to get a list of the commands");
+		animationTimer.setInitialDelay((int) delay);
+		animationTimer.restart();
+	}
+
+	/**
+	 * Repaints only what has changed since the last frame. The whole window is repainted when the tree or the log
+	 * changes, but the blinking cursor and fading log messages only need the bottom of the window redrawn. Must be
+	 * called on the event dispatch thread
+	 */
+	private void requestRepaint () {
+		long currentTime = System.currentTimeMillis();
+
+		if (treeDirty || overlayDirty || bst.getModCount() != drawnModCount || getHeatVersion() != drawnHeatVersion
+			|| styles[currStyle].getLayoutVersion() != drawnLayoutVersion || Log.getVersion() != drawnLogVersion
+			|| showPerf && currentTime - lastPerfUpdate >= PERF_INTERVAL) {
+			repaint();
+		} else if (isBlinkerOn(currentTime) != drawnBlinker || !Log.isEmpty() && currentTime - lastFade >= FADE_INTERVAL) {
+			int top = getHeight() - 16 - getLineHeight() * (Log.getMaxSize() + 2);
+			repaint(0, top, getWidth(), getHeight() - top);
 		}
 	}
 
 	@Override
 	public void paint (Graphics g) {
-		if (frame.getWidth() != getWidth() || frame.getHeight() != getHeight())
-			frame = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
-
-		Graphics gg = frame.getGraphics();
+		long start = System.nanoTime();
 
-		((Graphics2D) gg).setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-		((Graphics2D) gg).setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		if (frame.getWidth() != getWidth() || frame.getHeight() != getHeight()) {
+			frameGraphics.dispose();
+			treeGraphics.dispose();
+			frame = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+			treeLayer = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_RGB);
+			frameGraphics = frame.createGraphics();
+			treeGraphics = treeLayer.createGraphics();
+			setRenderingHints(frameGraphics);
+			setRenderingHints(treeGraphics);
+			treeDirty = true;
+		}
 
-		gg.setColor(Style.Colors.BLACK);
-		gg.fillRect(0, 0, getWidth(), getHeight());
+		// Read these before drawing, so a change made while drawing still triggers another frame
+		long modCount = bst.getModCount(), layoutVersion = styles[currStyle].getLayoutVersion(), heatVersion = getHeatVersion();
+		if (treeDirty || modCount != drawnModCount || layoutVersion != drawnLayoutVersion || heatVersion != drawnHeatVersion) {
+			treeDirty = false;
+			drawnModCount = modCount;
+			drawnLayoutVersion = layoutVersion;
+			drawnHeatVersion = heatVersion;
+
+			treeGraphics.setColor(Style.Colors.BLACK);
+			treeGraphics.fillRect(0, 0, getWidth(), getHeight());
+			styles[currStyle].drawTree(bst, getWidth(), getHeight(), treeGraphics, camera);
+		}
 
-		drawStuff((Graphics2D) gg);
+		frameGraphics.drawImage(treeLayer, 0, 0, null);
+		drawStuff(frameGraphics);
 
 		g.drawImage(frame, 0, 0, null);
+		paintTimer.stop(start);
 	}
 
-	private void drawStuff (Graphics2D graphics) {
-		styles[currStyle].drawTree(bst, getWidth(), getHeight(), graphics);
+	private static void setRenderingHints (Graphics2D graphics) {
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	}
 
+	private void drawStuff (Graphics2D graphics) {
 		long currentTime = System.currentTimeMillis();
 
+		overlayDirty = false;
+		drawnLogVersion = Log.getVersion();
+		drawnBlinker = isBlinkerOn(currentTime);
+		lastFade = currentTime;
+
 		graphics.setColor(Style.Colors.FG);
 		graphics.setFont(font);
-		graphics.drawString(">>> " + input + (currentTime % BLINKER_TIME > BLINKER_TIME / 3 ? "█" : ""), 20, getHeight() - 20);
-
-		Log.forEachLogItem((int i, String message, float t, Log.LogLevel level) -> {
-			double opacity = 1 - Math.pow(t, 4);
-			Color color = level.gColor;
-
-			var w = GraphicsUtil.getRenderedStringSize(message, font).width;
-
-			graphics.setColor(new Color(
-				Style.Colors.BLACK.getRed(),
-				Style.Colors.BLACK.getGreen(),
-				Style.Colors.BLACK.getBlue(),
-				Math.max(Math.min((int) (opacity * 200), 200), 0))
-			);
-			graphics.fillRect(
-				0,
-				getHeight() - 16 - (font.getSize() * 4 / 3) * (i + 2),
-				w + 40,
-				font.getSize() * 4 / 3
-			);
-
-			graphics.setColor(new Color(
-				color.getRed(),
-				color.getGreen(),
-				color.getBlue(),
-				Math.max(Math.min((int) (opacity * 255), 255), 0)
-			));
-			graphics.drawString(message, 20, getHeight() - 20 - (font.getSize() * 4 / 3) * (i + 1));
-		});
+		graphics.drawString(prompt, 20, getHeight() - 20);
+		if (drawnBlinker) graphics.drawString(BLINKER, 20 + promptWidth, getHeight() - 20);
+
+		long logStart = System.nanoTime();
+		logGraphics = graphics;
+		Log.forEachLogItem(font, logItemDrawer);
+		logGraphics = null;
+		logTimer.stop(logStart);
+
+		if (showPerf) drawPerf(graphics, currentTime);
+	}
+
+	/**
+	 * Draws the timings in the top right corner
+	 */
+	private void drawPerf (Graphics2D graphics, long currentTime) {
+		if (currentTime - lastPerfUpdate >= PERF_INTERVAL) {
+			perfLines = StageTimer.report(true);
+			perfWidth = 0;
+			for (var line : perfLines) perfWidth = Math.max(perfWidth, GraphicsUtil.getRenderedStringSize(line, font).width);
+			lastPerfUpdate = currentTime;
+		}
+
+		int left = getWidth() - perfWidth - 40, top = 40;
+
+		graphics.setColor(logBackground[LOG_BACKGROUND_ALPHA]);
+		graphics.fillRect(left, top, perfWidth + 20, getLineHeight() * perfLines.size() + 10);
+
+		graphics.setColor(Style.Colors.FG);
+		for (int i = 0; i < perfLines.size(); i++) {
+			graphics.drawString(perfLines.get(i), left + 10, top + 5 + getLineHeight() * i + font.getSize());
+		}
+	}
+
+	private void drawLogItem (int i, String message, int width, float t, Log.LogLevel level) {
+		double opacity = Math.max(Math.min(1 - Math.pow(t, 4), 1), 0);
+
+		logGraphics.setColor(logBackground[(int) (opacity * LOG_BACKGROUND_ALPHA)]);
+		logGraphics.fillRect(
+			0,
+			getHeight() - 16 - getLineHeight() * (i + 2),
+			width + 40,
+			getLineHeight()
+		);
+
+		logGraphics.setColor(logForeground[level.ordinal()][(int) (opacity * 255)]);
+		logGraphics.drawString(message, 20, getHeight() - 20 - getLineHeight() * (i + 1));
 	}
-}
\ No newline at end of file
+}
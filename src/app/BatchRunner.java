@@ -0,0 +1,73 @@
+package app;
+
+import tree.AbstractBST;
+import util.Log;
+import util.StageTimer;
+import values.NumberOrString;
+import values.Tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replays a script of commands against a tree without opening any windows, then reports how fast it went, along with
+ * the timings of every stage that ran (see {@link StageTimer}), how long each tree operation took, and anything the
+ * tree counted. Tracing is turned off so that only the tree operations themselves are measured
+ */
+public class BatchRunner {
+	private final AbstractBST<NumberOrString, ?> bst;
+	private final CommandInterpreter interpreter;
+
+	public BatchRunner (AbstractBST<NumberOrString, ?> bst) {
+		this.bst = bst;
+		this.interpreter = new CommandInterpreter(bst);
+
+		bst.setTracing(false);
+		Log.disableDisplay();
+	}
+
+	/**
+	 * @param script A file with one command per line, in ASCII or Latin-1
+	 */
+	public void run (Path script) {
+		try (FileChannel channel = FileChannel.open(script, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				Log.err("Script " + script + " is too large. Split it into files of less than 2GB");
+				return;
+			}
+			run(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException e) {
+			Log.err("Could not read script " + script + ": " + e.getMessage());
+		}
+	}
+
+	public void run (ByteBuffer script) {
+		Tokenizer tokenizer = new Tokenizer(script);
+		long commands = 0;
+
+		long start = System.nanoTime();
+		if (script.hasRemaining()) do {
+			if (tokenizer.hasNext()) {
+				commands++;
+				interpreter.evaluateCommand(tokenizer);
+			}
+		} while (tokenizer.nextLine());
+		long elapsed = System.nanoTime() - start;
+
+		long operations = interpreter.getOperationCount();
+		Log.output(String.format(
+			"Ran %d commands (%d operations) on %s in %.3f ms: %.0f ops/sec. Final size %d, height %d",
+			commands, operations, bst.getClass().getSimpleName(), elapsed / 1e6,
+			operations / Math.max(elapsed / 1e9, 1e-9), bst.size(), bst.getHeight()
+		));
+		for (var line : StageTimer.report(false)) Log.output(line);
+		for (var line : bst.getLatency().describe(bst.getClass().getSimpleName())) Log.output(line);
+
+		var stats = bst.getStats().describe();
+		if (!stats.isEmpty()) Log.output("──── Counts ────");
+		for (var line : stats) Log.output(line);
+	}
+}
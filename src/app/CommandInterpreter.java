@@ -0,0 +1,395 @@
+package app;
+
+import app.treedrawer.TreeDrawer;
+import app.treedrawer.TreeDrawerTidy;
+import app.treedrawer.TreeExporter;
+import bench.Workload;
+import jdk.jfr.*;
+import tree.AbstractBST;
+import tree.Traversal;
+import util.Log;
+import util.StageTimer;
+import values.NumberOrString;
+import values.Tokenizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Runs commands against a tree. This doesn't touch any of the GUI, so it can also drive a tree headlessly (see
+ * {@link BatchRunner}). {@link App} adds the commands that only make sense on screen
+ */
+public class CommandInterpreter {
+	protected final AbstractBST<NumberOrString, ?> bst;
+
+	// The number of values inserted, deleted or looked up, and queries run. Used to report throughput
+	private long operations = 0;
+
+	private static final StageTimer commandTimer = StageTimer.create("command");
+
+	@Name("bstlab.Command")
+	@Label("Command")
+	@Category({"Graphic BST Lab", "Commands"})
+	@Description("A command typed into the app or read from a batch script")
+	static class CommandEvent extends Event {
+		@Label("Command") String command;
+		@Label("Recognized") boolean recognized;
+		@Label("Tree Type") String treeType;
+		@Label("Tree Size") int treeSize;
+		@Label("Tree Changes") @Description("How many times the command changed the tree") long treeChanges;
+	}
+
+	// Lays out exported trees. Tidy, since it is the only style that copes with trees of any shape and size. Made on
+	// the first export, so that batch runs that don't export never load the drawing code and its fonts
+	private TreeDrawer exportDrawer;
+
+	public CommandInterpreter (AbstractBST<NumberOrString, ?> bst) {
+		this.bst = bst;
+	}
+
+	public long getOperationCount () {
+		return operations;
+	}
+
+	public void evaluateCommand (String str) {
+		evaluateCommand(new Tokenizer(str));
+	}
+
+	/**
+	 * Runs the command on the tokenizer's current line
+	 */
+	public void evaluateCommand (Tokenizer scan) {
+		if (!scan.hasNext()) return;
+		var event = new CommandEvent();
+		event.begin();
+		long start = System.nanoTime(), modCount = bst.getModCount();
+		String command = scan.next().toLowerCase();
+		boolean recognized = evaluateCommand(command, scan);
+		if (!recognized)
+			Log.err("Unknown command \"" + command + "\". Type \"help\" to get a list of the commands");
+		commandTimer.stop(start);
+
+		if (event.shouldCommit()) {
+			event.command = command;
+			event.recognized = recognized;
+			event.treeType = bst.getClass().getSimpleName();
+			event.treeSize = bst.size();
+			event.treeChanges = bst.getModCount() - modCount;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Should be overridden by subclasses to add commands
+	 *
+	 * @param command The command name, in lower case
+	 * @param scan    The tokenizer, positioned after the command name
+	 * @return whether the command was recognized
+	 */
+	protected boolean evaluateCommand (String command, Tokenizer scan) {
+		switch (command) {
+			case "insert" -> {
+				while (scan.hasNext()) {
+					NumberOrString v = scan.nextValue();
+
+					if (v == null) {
+						Log.err("Bad input: \"" + scan.next() + "\" is not an int, double, or valid string.");
+						break;
+					}
+
+					insert(v);
+				}
+			}
+			case "insertrand" -> {
+				if (scan.hasNextInt()) {
+					int lo = scan.nextInt();
+					if (scan.hasNextInt()) {
+						int hi = scan.nextInt();
+						int num = 1;
+						if (scan.hasNextInt()) num = scan.nextInt();
+						for (int i = 0; i < num; i++) {
+							insert(new NumberOrString((int) (Math.random() * (hi - lo + 1)) + lo));
+						}
+						break;
+					}
+				}
+				Log.err("Bad input: insertRand should be called with 2-3 int args");
+			}
+			case "clear" -> {
+				operations++;
+				bst.clear();
+				Log.log("Cleared tree");
+			}
+			case "delete" -> {
+				while (scan.hasNext()) {
+					NumberOrString v = scan.nextValue();
+
+					if (v == null) {
+						Log.err("Bad input: \"" + scan.next() + "\" is not an int, double, or valid string.");
+						break;
+					}
+
+					operations++;
+					if (bst.isTracing()) {
+						Log.log("Deleting " + v + " from the tree");
+						bst.printTreeToConsole();
+					}
+					// Only look the value up once, so a delete counts as a single lookup for the heatmap and stats
+					if (!bst.remove(v)) {
+						Log.log(v + " is not in the tree");
+						break;
+					}
+					if (bst.isTracing()) {
+						bst.printTreeToConsole();
+						Log.log("Deleted " + v + " from the tree");
+					}
+				}
+			}
+			case "help" -> {
+				for (var line : getHelp()) Log.output(line);
+			}
+			case "traverse" -> {
+				try {
+					StringBuilder sb = new StringBuilder("[ ");
+					(switch (scan.next().toLowerCase()) {
+						case "preorder" -> new Traversal.PreOrder<>(bst);
+						case "postorder" -> new Traversal.PostOrder<>(bst);
+						case "inorder" -> new Traversal.InOrder<>(bst);
+						case "reverseorder" -> new Traversal.ReverseOrder<>(bst);
+						case "levelorder" -> new Traversal.LevelOrder<>(bst);
+						default -> throw new Exception();
+					}).forEach(i -> sb.append(i).append(" "));
+					sb.append("]");
+					operations++;
+					Log.output(sb.toString());
+				} catch (Exception e) {
+					Log.err("Invalid parameter to traverse: Must be an one of preorder, postorder, inorder, reverseOrder, levelOrder");
+				}
+			}
+			case "query" -> {
+				operations++;
+				if (scan.hasNext()) switch (scan.next().toLowerCase()) {
+					case "numleaves" -> Log.output(bst.countLeaves() + "");
+					case "numlevels" -> Log.output(bst.countLevels() + "");
+					case "height" -> Log.output(bst.getHeight() + "");
+					case "width" -> Log.output(bst.getWidth() + "");
+					case "diameter" -> Log.output(bst.getDiameter() + "");
+					case "size" -> Log.output(bst.size() + "");
+					case "isfull" -> Log.output("Bst is" + (bst.isFullTree() ? " " : " not ") + "full");
+					case "largest" -> Log.output(bst.getLargest() + "");
+					case "smallest" -> Log.output(bst.getSmallest() + "");
+					case "levelwidths" -> Log.output(Arrays.toString(bst.getLevelWidths()));
+					case "stats" -> {
+						var stats = bst.getStats();
+						var lines = stats.describe();
+						if (lines.isEmpty())
+							Log.output(stats.isEnabled() ? "Nothing has been counted yet" : "Nothing has been counted. Type \"stats on\" to start counting");
+						for (var line : lines) Log.output(line);
+					}
+					default ->
+						Log.err("Invalid parameter to query: Must be one of numLeaves, numLevels, width, height, diameter, size, levelWidths, isFull, largest, smallest, stats");
+				}
+				else
+					Log.err("Invalid parameter to query: Must be one of numLeaves, numLevels, height, width, diameter, size, levelWidths, isFull, largest, smallest, stats");
+			}
+			case "intersect" -> {
+				List<NumberOrString> values = new ArrayList<>();
+				while (scan.hasNext()) {
+					NumberOrString v = scan.nextValue(Integer.MAX_VALUE);
+
+					if (v == null) {
+						Log.err("Bad input: \"" + scan.next() + "\" is not an int, double, or string.");
+						break;
+					}
+
+					values.add(v);
+				}
+
+				operations += values.size();
+				List<NumberOrString> intersection = new ArrayList<>(bst.intersection(values));
+				Log.output(intersection.toString());
+			}
+			case "print" -> {
+				if (scan.hasNextInt()) {
+					int width = scan.nextInt();
+					if (!scan.hasNextInt()) {
+						Log.err("Bad input: print should be called with no args, or a max width and a max depth");
+						break;
+					}
+					bst.setConsoleLimits(width, scan.nextInt());
+				}
+				operations++;
+				bst.printTreeToConsole();
+			}
+			case "export" -> {
+				if (!scan.hasNext()) {
+					Log.err("Bad input: export should be called with a file name ending in .png or .svg");
+					break;
+				}
+				export(Path.of(scan.next()));
+			}
+			case "perf" -> {
+				String action = scan.hasNext() ? scan.next().toLowerCase() : "print";
+				switch (action) {
+					case "print" -> {
+						var report = StageTimer.report(false);
+						if (report.isEmpty()) Log.output("Nothing has been timed yet");
+						for (var line : report) Log.output(line);
+					}
+					case "reset" -> {
+						StageTimer.resetAll();
+						Log.log("Reset timings");
+					}
+					default -> Log.err("Invalid parameter to perf: Must be one of print, reset");
+				}
+			}
+			case "latency" -> {
+				String action = scan.hasNext() ? scan.next().toLowerCase() : "print";
+				switch (action) {
+					case "print" -> {
+						var report = bst.getLatency().describe(bst.getClass().getSimpleName());
+						if (report.isEmpty()) Log.output("No operations have run yet");
+						for (var line : report) Log.output(line);
+					}
+					case "reset" -> {
+						bst.getLatency().reset();
+						Log.log("Reset latencies");
+					}
+					default -> Log.err("Invalid parameter to latency: Must be one of print, reset");
+				}
+			}
+			case "bench" -> {
+				Workload.Kind kind = scan.hasNext() ? Workload.Kind.named(scan.next()) : null;
+				if (kind == null || !scan.hasNextInt()) {
+					Log.err("Bad input: bench should be called with one of uniform, sorted, reverse, zipf, clusters, churn, strings and a count");
+					break;
+				}
+				int count = scan.nextInt(), param = scan.hasNextInt() ? scan.nextInt() : 0;
+				if (count < 0 || param < 0) {
+					Log.err("Bad input: bench needs a count and parameter of at least 0");
+					break;
+				}
+
+				var result = Workload.generate(kind, count, param, System.nanoTime()).run(bst);
+				operations += count;
+				Log.output(result.toString());
+			}
+			case "heatmap" -> {
+				switch (scan.hasNext() ? scan.next().toLowerCase() : "") {
+					case "on" -> {
+						bst.setHeatTracking(true);
+						TreeDrawer.setHeatmap(true);
+						Log.log("Coloring nodes by how often lookups visit them");
+					}
+					case "off" -> {
+						bst.setHeatTracking(false);
+						TreeDrawer.setHeatmap(false);
+						Log.log("Stopped the heatmap");
+					}
+					case "reset" -> {
+						bst.resetHeat();
+						Log.log("Reset the heatmap");
+					}
+					default -> Log.err("Invalid parameter to heatmap: Must be one of on, off, reset");
+				}
+			}
+			case "stats" -> {
+				switch (scan.hasNext() ? scan.next().toLowerCase() : "") {
+					case "on" -> {
+						bst.setCounting(true);
+						Log.log("Counting comparisons, rotations and node visits");
+					}
+					case "off" -> {
+						bst.setCounting(false);
+						Log.log("Stopped counting");
+					}
+					case "reset" -> {
+						bst.getStats().reset();
+						Log.log("Reset counts");
+					}
+					default -> Log.err("Invalid parameter to stats: Must be one of on, off, reset");
+				}
+			}
+			default -> {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Should be extended by subclasses to describe the commands they add
+	 *
+	 * @return the lines printed by the help command
+	 */
+	protected List<String> getHelp () {
+		return new ArrayList<>(List.of(
+			"──── Commands ────",
+			"insert <values:number...> : Adds the values to the bst.BST",
+			"    Example: \"insert 3 1 0 2 6 4 5 9 11\"",
+			"insertRand <low:number> <high:number> [amount:number] : inserts <amount> random numbers in the range [<low>, <high>]",
+			"    Example: \"insertRand 0 99 10\"",
+			"delete <values:number...> : Deletes the values from the bst.BST",
+			"    Example: \"delete 1 2 3 4\"",
+			"traverse <method: preOrder|postOrder|inOrder|reverseOrder|levelOrder> : Traverses the binary search tree using the provided method",
+			"    Example: \"traverse preOrder\"",
+			"query <attribute: numLeaves|numLevels|height|width|diameter|size|levelWidths|isFull|largest|smallest|stats> : Gets the corresponding attribute of the bst",
+			"    Example: \"traverse preOrder\"",
+			"perf [action: print|reset] : Prints how long commands, layouts and frames have taken, or clears the timings",
+			"    Example: \"perf print\"",
+			"latency [action: print|reset] : Prints percentiles of how long each kind of tree operation has taken, or clears them",
+			"    Example: \"latency\"",
+			"bench <keys: uniform|sorted|reverse|zipf|clusters|churn|strings> <count:number> [param:number] : Runs generated inserts (and deletes, for churn) against the tree with tracing off, and reports how fast it went and how balanced the tree ended up. param is the length of each run for sorted, and of each string for strings",
+			"    Example: \"bench zipf 100000\"",
+			"heatmap <action: on|off|reset> : Colors nodes and edges by how often lookups visit them, from gray for never through blue to red for every time",
+			"    Example: \"heatmap on\"",
+			"stats <action: on|off|reset> : Starts or stops counting the work the tree does, or clears the counts. See them with \"query stats\"",
+			"    Example: \"stats on\"",
+			"print [maxWidth:number maxDepth:number] : Prints the tree to the terminal, cut off at the given size from then on",
+			"    Example: \"print 120 10\"",
+			"export <file: *.png|*.svg> : Draws the tree to an image file",
+			"    Example: \"export tree.svg\"",
+			"clear : Deletes the entire tree",
+			"help : Displays this list of commands"
+		));
+	}
+
+	/**
+	 * Should be overridden by subclasses that show the tree in a particular style
+	 *
+	 * @return The drawer that lays out exported trees
+	 */
+	protected TreeDrawer getExportDrawer () {
+		if (exportDrawer == null) exportDrawer = new TreeDrawerTidy();
+		return exportDrawer;
+	}
+
+	private void export (Path file) {
+		String name = file.getFileName().toString().toLowerCase();
+		if (!name.endsWith(".png") && !name.endsWith(".svg")) {
+			Log.err("Bad input: can only export to .png or .svg files");
+			return;
+		}
+
+		operations++;
+		var drawer = getExportDrawer();
+		try {
+			var layout = drawer.layout(bst);
+			int nodes = name.endsWith(".png") ? TreeExporter.writePng(drawer, layout, file) : TreeExporter.writeSvg(layout, file);
+			Log.log("Exported " + nodes + " nodes to " + file);
+		} catch (IOException e) {
+			Log.err("Could not export to " + file + ": " + e.getMessage());
+		}
+	}
+
+	private void insert (NumberOrString v) {
+		operations++;
+		if (bst.isTracing()) {
+			Log.log("Adding " + v + " to the tree");
+			bst.printTreeToConsole();
+		}
+		bst.add(v);
+		if (bst.isTracing()) Log.log("Added " + v + " to the tree");
+	}
+}
@@ -11,5 +11,34 @@ public class Style {
 			BLUE = new Color(82, 164, 255),
 			FG = new Color(255, 255, 255),
 			DM = new Color(113, 113, 129);
+
+		/**
+		 * Makes a copy of the color at every alpha, so that fading things in and out doesn't create colors while drawing
+		 *
+		 * @return An array where index a holds the color with alpha a, for a in [0, 255]
+		 */
+		public static Color[] alphaRamp (Color color) {
+			Color[] res = new Color[256];
+			for (int a = 0; a < res.length; a++) {
+				res[a] = new Color(color.getRed(), color.getGreen(), color.getBlue(), a);
+			}
+			return res;
+		}
+
+		/**
+		 * @return steps colors going evenly from one color to the other, including both
+		 */
+		public static Color[] gradient (Color from, Color to, int steps) {
+			Color[] res = new Color[steps];
+			for (int i = 0; i < steps; i++) {
+				float t = steps == 1 ? 0 : i / (float) (steps - 1);
+				res[i] = new Color(
+					Math.round(from.getRed() + (to.getRed() - from.getRed()) * t),
+					Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * t),
+					Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * t)
+				);
+			}
+			return res;
+		}
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package app.treedrawer;
+
+import java.awt.Graphics2D;
+
+/**
+ * Where the tree is viewed from. Screen coordinates are world coordinates scaled by the zoom, then moved by the pan
+ */
+public class Camera {
+	private static final double MIN_ZOOM = 1e-4, MAX_ZOOM = 16;
+
+	private double panX = 0, panY = 0, zoom = 1;
+
+	public double getZoom () {
+		return zoom;
+	}
+
+	public double getPanX () {
+		return panX;
+	}
+
+	public double getPanY () {
+		return panY;
+	}
+
+	public void pan (double dx, double dy) {
+		panX += dx;
+		panY += dy;
+	}
+
+	/**
+	 * Zooms in or out while keeping the point under (screenX, screenY) in place
+	 *
+	 * @param factor How much to multiply the zoom by
+	 */
+	public void zoom (double factor, double screenX, double screenY) {
+		double newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, zoom * factor));
+		double worldX = toWorldX(screenX), worldY = toWorldY(screenY);
+		zoom = newZoom;
+		panX = screenX - worldX * zoom;
+		panY = screenY - worldY * zoom;
+	}
+
+	public void reset () {
+		panX = panY = 0;
+		zoom = 1;
+	}
+
+	public double toWorldX (double screenX) {
+		return (screenX - panX) / zoom;
+	}
+
+	public double toWorldY (double screenY) {
+		return (screenY - panY) / zoom;
+	}
+
+	/**
+	 * Makes the graphics draw in world coordinates
+	 */
+	public void apply (Graphics2D graphics) {
+		graphics.translate(panX, panY);
+		graphics.scale(zoom, zoom);
+	}
+}
@@ -0,0 +1,28 @@
+package app.treedrawer;
+
+import tree.BSTNode;
+
+/**
+ * A copy of a node, made while holding the tree's lock so that the tree can be laid out and drawn without it. The
+ * value is the node's label, and the kind is how it is colored (see {@link TreeDrawer#copyTree})
+ */
+final class NodeSnapshot extends BSTNode<String> {
+	byte kind;
+
+	// The number of edges down to the lowest node under this one, used for the balance of AVL nodes
+	int height;
+
+	NodeSnapshot (String label) {
+		super(label);
+	}
+
+	@Override
+	public NodeSnapshot getLeftChild () {
+		return (NodeSnapshot) super.getLeftChild();
+	}
+
+	@Override
+	public NodeSnapshot getRightChild () {
+		return (NodeSnapshot) super.getRightChild();
+	}
+}
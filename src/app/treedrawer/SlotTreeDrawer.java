@@ -0,0 +1,25 @@
+package app.treedrawer;
+
+import tree.AbstractBST;
+import tree.BSTNode;
+
+/**
+ * A drawer that places the tree one level at a time, with the nodes of each level in their heap slots: the children
+ * of slot i of a level are in slots 2i and 2i + 1 of the next, and missing nodes leave their slots null
+ */
+public abstract class SlotTreeDrawer extends TreeDrawer {
+	/**
+	 * @param levels The nodes of each level in their heap slots
+	 * @param height The number of levels
+	 * @return The x of the center of every node, relative to the center of the tree, in the same slots
+	 */
+	protected abstract int[][] calculatePositions (BSTNode<?>[][] levels, int height);
+
+	@Override
+	protected TreeLayout calculateLayout (NodeSnapshot root) {
+		if (root == null) return TreeLayout.EMPTY;
+
+		var levels = AbstractBST.getNodesAtLevels(root);
+		return TreeLayout.fromLevels(levels, calculatePositions(levels, levels.length), TreeDrawer::getHalfWidth);
+	}
+}
@@ -0,0 +1,172 @@
+package app.treedrawer;
+
+import app.Style;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * A bounded, least-recently-used cache of the tree drawn as a grid of square images. The grid is fixed to the world
+ * scaled by the zoom, so panning only moves the tiles and each frame is just one image copy per tile.
+ * <br>
+ * When the layout or its version changes, each tile works out what it would now show without drawing it, and is only
+ * drawn again if that is different. Changing the zoom, the font size or the window width starts a new grid. Only meant to be used
+ * from the thread that paints
+ */
+public class TileCache {
+	public static final int TILE_SIZE = 256;
+	private static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * Integer.BYTES;
+
+	// Images of evicted tiles, kept to be drawn over rather than allocated again
+	private static final int MAX_SPARES = 16;
+
+	private final Map<Key, Tile> tiles;
+	private final Deque<BufferedImage> spares = new ArrayDeque<>();
+
+	// Used to look tiles up without making a key for each one. Only copied when a tile is added
+	private final Key probe = new Key();
+
+	/**
+	 * @param maxBytes The most memory to use for tile images
+	 */
+	public TileCache (long maxBytes) {
+		final long capacity = Math.max(1, maxBytes / TILE_BYTES);
+		this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry (Map.Entry<Key, Tile> eldest) {
+				if (size() <= capacity) return false;
+				if (spares.size() < MAX_SPARES) spares.push(eldest.getValue().image);
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Draws what the camera can see of the layout. Tiles that are missing or whose contents changed are drawn by the
+	 * drawer first
+	 *
+	 * @param version Changes whenever the layout would be drawn differently without being replaced, like when the heat
+	 *                of its nodes changes
+	 */
+	void draw (TreeDrawer drawer, TreeLayout layout, long version, int windowWidth, int windowHeight, Graphics2D graphics, Camera camera) {
+		double zoom = camera.getZoom();
+		int xOffset = windowWidth / 2;
+		float fontSize = TreeDrawer.getFontSize();
+
+		// Whole pixels only, so tiles line up with the screen
+		int panX = (int) Math.floor(camera.getPanX()), panY = (int) Math.floor(camera.getPanY());
+
+		int firstColumn = Math.floorDiv(-panX, TILE_SIZE), lastColumn = Math.floorDiv(windowWidth - 1 - panX, TILE_SIZE);
+		int firstRow = Math.floorDiv(-panY, TILE_SIZE), lastRow = Math.floorDiv(windowHeight - 1 - panY, TILE_SIZE);
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				var key = probe.set(zoom, fontSize, xOffset, column, row);
+				var tile = tiles.get(key);
+
+				if (tile == null) {
+					tile = new Tile(takeImage());
+					render(drawer, layout, key, tile);
+					tile.version = version;
+					tiles.put(new Key().set(zoom, fontSize, xOffset, column, row), tile);
+				} else if (tile.layout != layout || tile.version != version) {
+					// Only draw it again if something in it changed
+					if (tile.hash != drawer.drawRegion(layout, xOffset, key.left(), key.top(), key.right(), key.bottom(), zoom, null))
+						render(drawer, layout, key, tile);
+					tile.layout = layout;
+					tile.version = version;
+				}
+
+				graphics.drawImage(tile.image, column * TILE_SIZE + panX, row * TILE_SIZE + panY, null);
+			}
+		}
+	}
+
+	public void clear () {
+		tiles.clear();
+		spares.clear();
+	}
+
+	private BufferedImage takeImage () {
+		var spare = spares.poll();
+		return spare != null ? spare : new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+	}
+
+	private static void render (TreeDrawer drawer, TreeLayout layout, Key key, Tile tile) {
+		Graphics2D graphics = tile.image.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		graphics.setColor(Style.Colors.BLACK);
+		graphics.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+
+		graphics.translate(-key.column * TILE_SIZE, -key.row * TILE_SIZE);
+		graphics.scale(key.zoom, key.zoom);
+		tile.hash = drawer.drawRegion(layout, key.xOffset, key.left(), key.top(), key.right(), key.bottom(), key.zoom, graphics);
+		tile.layout = layout;
+		graphics.dispose();
+	}
+
+	private static class Tile {
+		final BufferedImage image;
+
+		// The layout and version last drawn or checked against, and the hash of what was drawn
+		TreeLayout layout = null;
+		long version = 0, hash = 0;
+
+		Tile (BufferedImage image) {
+			this.image = image;
+		}
+	}
+
+	/**
+	 * Where a tile is, and everything else that decides where the nodes in it are drawn
+	 */
+	private static class Key {
+		double zoom;
+		float fontSize;
+		int xOffset, column, row;
+
+		Key set (double zoom, float fontSize, int xOffset, int column, int row) {
+			this.zoom = zoom;
+			this.fontSize = fontSize;
+			this.xOffset = xOffset;
+			this.column = column;
+			this.row = row;
+			return this;
+		}
+
+		// The part of the world the tile covers
+		double left () {
+			return column * TILE_SIZE / zoom;
+		}
+
+		double right () {
+			return (column + 1) * TILE_SIZE / zoom;
+		}
+
+		double top () {
+			return row * TILE_SIZE / zoom;
+		}
+
+		double bottom () {
+			return (row + 1) * TILE_SIZE / zoom;
+		}
+
+		@Override
+		public boolean equals (Object o) {
+			return o instanceof Key k && k.zoom == zoom && k.fontSize == fontSize && k.xOffset == xOffset
+			       && k.column == column && k.row == row;
+		}
+
+		@Override
+		public int hashCode () {
+			long bits = Double.doubleToLongBits(zoom);
+			int res = (int) (bits ^ bits >>> 32);
+			res = res * 31 + Float.floatToIntBits(fontSize);
+			res = res * 31 + xOffset;
+			res = res * 31 + column;
+			return res * 31 + row;
+		}
+	}
+}
@@ -1,23 +1,40 @@
 package app.treedrawer;
 
 import app.Style;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
 import tree.AVLNode;
 import tree.AbstractBST;
 import tree.BSTNode;
 import tree.RBTNode;
 import util.FontLoader;
-import util.GraphicsUtil;
+import util.StageTimer;
+import util.TextCache;
 
 import java.awt.*;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public abstract class TreeDrawer {
 	public static Font font = FontLoader.load("JBMono.ttf").deriveFont(12f);
 	public static Font ffont = FontLoader.load("Consolas.ttf").deriveFont(12f);
 
+	private static final int TEXT_CACHE_SIZE = 4096;
+	private static TextCache textCache = new TextCache(font, ffont, TEXT_CACHE_SIZE);
+
+	// Enough for a few screens of tiles
+	private static final long TILE_CACHE_BYTES = 64L << 20;
+	private static final TileCache tileCache = new TileCache(TILE_CACHE_BYTES);
+
 	public static void setFontSize(float size) {
 		font = font.deriveFont(size);
 		ffont = ffont.deriveFont(size);
+		textCache = new TextCache(font, ffont, TEXT_CACHE_SIZE);
 	}
 	public static float getFontSize(){
 		return font.getSize2D();
@@ -28,116 +45,464 @@ public abstract class TreeDrawer {
 	}
 
 	protected static int getRenderedSize(BSTNode<?> node){
-		return
-			Math.max(
-				GraphicsUtil.getRenderedStringSize(node.toString(), font).width,
-				GraphicsUtil.getRenderedStringSize(node.toString(), font).height
-			)
-			+ getNodePadding() * 4;
+		return getRenderedSize(textCache.get(node.toString()));
+	}
+
+	static TextCache getTextCache () {
+		return textCache;
 	}
 
-	protected abstract int[][] calculatePositions (BSTNode<?>[][] levels, int height);
+	static int getRenderedSize(TextCache.RenderedText text){
+		return Math.max(text.width, text.height) + getNodePadding() * 4;
+	}
 
-	public final void drawTree (AbstractBST<?, ?> bst, int windowWidth, int windowHeight, Graphics2D graphics) {
-		final int height = bst.countLevels();
-		BSTNode<?>[][] levels;
-		int[][] x;
+	/**
+	 * Calculates where every node goes in a copy of the tree made by {@link #copyTree}
+	 */
+	protected abstract TreeLayout calculateLayout (NodeSnapshot root);
+
+	/**
+	 * @return Half the width of the oval drawn around the node
+	 */
+	protected static int getHalfWidth (BSTNode<?> node) {
+		return getRenderedSize(node) / 2 - getNodePadding();
+	}
+
+	// Subtrees narrower than this many pixels on screen are drawn as a single summary glyph
+	private static final int COLLAPSE_WIDTH = 24;
+
+	private static final StageTimer snapshotTimer = StageTimer.create("snapshot"),
+		layoutTimer = StageTimer.create("layout"),
+		drawTimer = StageTimer.create("nodes");
+
+	@Name("bstlab.Layout")
+	@Label("Tree Layout")
+	@Category({"Graphic BST Lab", "Drawing"})
+	@Description("Working out where each node of a tree goes")
+	static class LayoutEvent extends Event {
+		@Label("Style") String style;
+		@Label("Tree Type") String treeType;
+		@Label("Nodes") int nodes;
+		@Label("Levels") int levels;
+	}
 
-		if (bst.isEmpty()){
-			levels = new BSTNode<?>[][]{};
-			x = new int[][]{};
+	// Layouts are calculated on this thread so that big trees don't hold up painting and input
+	private static final ExecutorService layoutWorker = Executors.newSingleThreadExecutor(r -> {
+		var thread = new Thread(r, "Tree layout");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * A finished layout, and what it was calculated from
+	 */
+	private static class Snapshot {
+		final AbstractBST<?, ?> tree;
+		final long modCount, heatVersion;
+		final float fontSize;
+		final TreeLayout layout;
+
+		Snapshot (AbstractBST<?, ?> tree, long modCount, long heatVersion, float fontSize, TreeLayout layout) {
+			this.tree = tree;
+			this.modCount = modCount;
+			this.heatVersion = heatVersion;
+			this.fontSize = fontSize;
+			this.layout = layout;
+		}
+
+		boolean isCurrent (AbstractBST<?, ?> bst) {
+			return bst == tree && bst.getModCount() == modCount && getHeatVersion(bst, heatmap) == heatVersion
+				&& getFontSize() == fontSize;
 		}
-		else {
-			levels = bst.getNodesAtLevels();
+	}
+
+	private volatile Snapshot snapshot = new Snapshot(null, 0, -1, 0, TreeLayout.EMPTY);
+	private volatile long layoutVersion = 0;
+	private final AtomicBoolean layoutPending = new AtomicBoolean(false);
+
+	// Told about every layout finished in the background
+	private volatile Runnable layoutListener = () -> {};
+
+	/**
+	 * @param listener Called on the layout thread whenever a layout started by drawing the tree finishes, so that the
+	 *                 tree can be drawn again with it
+	 */
+	public final void setLayoutListener (Runnable listener) {
+		layoutListener = listener;
+	}
+
+	/**
+	 * @return A number that changes every time a new layout finishes
+	 */
+	public final long getLayoutVersion () {
+		return layoutVersion;
+	}
+
+	/**
+	 * Calculates the layout of the tree on the calling thread
+	 */
+	public final TreeLayout layout (AbstractBST<?, ?> bst) {
+		return timeLayout(bst).layout;
+	}
+
+	/**
+	 * Copies the tree holding its lock, then calculates the layout of the copy without it, so the tree can be changed
+	 * while the layout is worked out. Records how long it took in the layout timer and as a {@link LayoutEvent}
+	 */
+	private Snapshot timeLayout (AbstractBST<?, ?> bst) {
+		var event = new LayoutEvent();
+		event.begin();
+		long start = System.nanoTime();
 
-			x = calculatePositions(levels, height);
+		boolean heatmap = TreeDrawer.heatmap;
+		NodeSnapshot root;
+		long modCount, heatVersion;
+		synchronized (bst) {
+			root = copyTree(bst.getRoot(), heatmap, bst.getHeatEpoch());
+			modCount = bst.getModCount();
+			heatVersion = getHeatVersion(bst, heatmap);
 		}
+		float fontSize = getFontSize();
+		var res = calculateLayout(root);
 
-		int[][] y = new int[height][];
-		{
-			int textHeight = GraphicsUtil.getRenderedStringSize("test string", font).height;
+		layoutTimer.stop(start);
+		if (event.shouldCommit()) {
+			event.style = getClass().getSimpleName();
+			event.treeType = bst.getClass().getSimpleName();
+			event.nodes = res.size();
+			event.levels = res.getLevels();
+			event.commit();
+		}
+		return new Snapshot(bst, modCount, heatVersion, fontSize, res);
+	}
 
-			// Black magic. Calculates a nice position for the tree to center it
-			// int yOffset =  (windowHeight + textHeight) / 2 - (height - 1) * 3 * getNodePadding() + 4;
-			int yOffset = getNodePadding() + 40 + textHeight / 2;
+	/**
+	 * Starts calculating the layout of the tree in the background, unless one is already being calculated. Requests
+	 * made while a layout is running are dropped: whoever sees the finished layout is out of date asks again, and
+	 * that request picks up all the changes since
+	 */
+	private void requestLayout (AbstractBST<?, ?> bst) {
+		if (!layoutPending.compareAndSet(false, true)) return;
 
-			// Now the actual positions
-			for (int h = 0; h < height; h++) {
-				y[h] = new int[1 << h];
-				Arrays.fill(y[h],
-					h * 6 * getNodePadding() + yOffset
-				);
+		layoutWorker.execute(() -> {
+			try {
+				snapshot = timeLayout(bst);
+				layoutVersion++;
+			} finally {
+				layoutPending.set(false);
 			}
+			layoutListener.run();
+		});
+	}
+
+	/**
+	 * @return The most recently finished layout. If it is out of date, a new one is started in the background
+	 */
+	private TreeLayout getLatestLayout (AbstractBST<?, ?> bst) {
+		long start = System.nanoTime();
+		var s = snapshot;
+		if (!s.isCurrent(bst)) requestLayout(bst);
+		snapshotTimer.stop(start);
+		return s.tree == bst ? s.layout : TreeLayout.EMPTY;
+	}
+
+	public final void drawTree (AbstractBST<?, ?> bst, int windowWidth, int windowHeight, Graphics2D graphics) {
+		drawTree(bst, windowWidth, windowHeight, graphics, new Camera());
+	}
+
+	/**
+	 * Draws the latest finished layout of the tree through the shared {@link TileCache}, so that panning around the
+	 * same layout only copies tiles. See {@link #drawTree(TreeLayout, int, int, Graphics2D, Camera)}
+	 */
+	public final void drawTree (AbstractBST<?, ?> bst, int windowWidth, int windowHeight, Graphics2D graphics, Camera camera) {
+		var layout = getLatestLayout(bst);
+		long start = System.nanoTime();
+		tileCache.draw(this, layout, getHeatVersion(bst, heatmap), windowWidth, windowHeight, graphics, camera);
+		drawTimer.stop(start);
+	}
+
+	/**
+	 * Draws the part of the tree that the camera can see. Subtrees that would be too small to make out are
+	 * drawn as a triangle labelled with the number of nodes in them
+	 */
+	public final void drawTree (TreeLayout layout, int windowWidth, int windowHeight, Graphics2D graphics, Camera camera) {
+		long start = System.nanoTime();
+
+		var transform = graphics.getTransform();
+		camera.apply(graphics);
+		drawRegion(
+			layout, windowWidth / 2,
+			camera.toWorldX(0), camera.toWorldY(0), camera.toWorldX(windowWidth), camera.toWorldY(windowHeight),
+			camera.getZoom(), graphics
+		);
+		graphics.setTransform(transform);
+
+		drawTimer.stop(start);
+	}
+
+	/**
+	 * @return The y of the root
+	 */
+	static int getYOffset () {
+		// Black magic. Calculates a nice position for the tree to center it
+		// int yOffset =  (windowHeight + textHeight) / 2 - (height - 1) * 3 * getNodePadding() + 4;
+		return getNodePadding() + 40 + textCache.get("test string").height / 2;
+	}
+
+	// Whether nodes are colored by how often lookups visit them, rather than by their color or balance
+	private static volatile boolean heatmap = false;
+
+	// Colors of the background, border and text of each kind of node. In heatmap mode, nodes are one of the HEAT kinds,
+	// from nodes no lookup has visited up to the most visited nodes
+	static final int PLAIN = 0, RED = 1, LEFT_HEAVY = 2, RIGHT_HEAVY = 3, HEAT = 4, HEAT_LEVELS = 8;
+	private static final Color[] heatColors = new Color[HEAT_LEVELS];
+	static final Color[]
+		nodeBackground = new Color[HEAT + HEAT_LEVELS],
+		nodeBorder = new Color[HEAT + HEAT_LEVELS],
+		nodeText = new Color[HEAT + HEAT_LEVELS],
+		edgeColor = new Color[HEAT + HEAT_LEVELS];
+
+	static {
+		heatColors[0] = Style.Colors.DM;
+		System.arraycopy(Style.Colors.gradient(Style.Colors.BLUE, Style.Colors.RED, HEAT_LEVELS - 1), 0, heatColors, 1, HEAT_LEVELS - 1);
+
+		System.arraycopy(new Color[] { Style.Colors.BLACK, Style.Colors.RED, Style.Colors.BLACK, Style.Colors.BLACK }, 0, nodeBackground, 0, HEAT);
+		System.arraycopy(new Color[] { Style.Colors.GREEN, Style.Colors.RED, Style.Colors.RED, Style.Colors.BLUE }, 0, nodeBorder, 0, HEAT);
+		System.arraycopy(new Color[] { Style.Colors.GREEN, Style.Colors.BLACK, Style.Colors.RED, Style.Colors.BLUE }, 0, nodeText, 0, HEAT);
+		Arrays.fill(edgeColor, 0, HEAT, Style.Colors.DM);
+
+		for (int i = 0; i < HEAT_LEVELS; i++) {
+			nodeBackground[HEAT + i] = Style.Colors.BLACK;
+			nodeBorder[HEAT + i] = nodeText[HEAT + i] = edgeColor[HEAT + i] = heatColors[i];
 		}
+	}
 
-		for(int i = 0; i < height; i++){
-			for(int j = 0; j < (1 << i); j++){
-				x[i][j] += windowWidth / 2;
+	/**
+	 * @param heatmap Whether to color nodes and the edges to them by how often lookups visit them. Only shows anything
+	 *                for trees with heat tracking on (see {@link AbstractBST#setHeatTracking})
+	 */
+	public static void setHeatmap (boolean heatmap) {
+		TreeDrawer.heatmap = heatmap;
+	}
+
+	public static boolean isHeatmap () {
+		return heatmap;
+	}
+
+	/**
+	 * @return The heat version of the tree if nodes are colored by heat, otherwise -1 since heat doesn't change the
+	 * drawing
+	 */
+	private static long getHeatVersion (AbstractBST<?, ?> bst, boolean heatmap) {
+		return heatmap ? bst.getHeatVersion() : -1;
+	}
+
+	/**
+	 * Copies the tree along with the label and kind of every node. Must be called holding the tree's lock, and reads
+	 * every node only once, without recursion
+	 *
+	 * @param heatmap Whether nodes are colored by heat
+	 * @param epoch   The tree's current heat epoch
+	 * @return The copy of the root, or null for an empty tree
+	 */
+	static NodeSnapshot copyTree (BSTNode<?> root, boolean heatmap, int epoch) {
+		if (root == null) return null;
+
+		// Breadth first, so every node comes after its parent
+		var nodes = new ArrayList<BSTNode<?>>();
+		var copies = new ArrayList<NodeSnapshot>();
+		nodes.add(root);
+		copies.add(new NodeSnapshot(root.toString()));
+		for (int i = 0; i < nodes.size(); i++) {
+			var node = nodes.get(i);
+			var copy = copies.get(i);
+			if (node.hasLeftChild()) {
+				nodes.add(node.getLeftChild());
+				copies.add(new NodeSnapshot(node.getLeftChild().toString()));
+				copy.setLeftChild(copies.get(copies.size() - 1));
+			}
+			if (node.hasRightChild()) {
+				nodes.add(node.getRightChild());
+				copies.add(new NodeSnapshot(node.getRightChild().toString()));
+				copy.setRightChild(copies.get(copies.size() - 1));
 			}
 		}
 
-		graphics.setFont(font);
-
-		for (int h = height - 1; h >= 0; h--) {
-			for (int i = 0; i < levels[h].length; i++) {
-				var node = levels[h][i];
-
-				if (node != null) {
-					String text = node.toString();
-					var d = GraphicsUtil.getRenderedStringSize(text, font);
-					var w = getRenderedSize(node) - getNodePadding() * 4;
-					int X = x[h][i], Y = y[h][i];
-
-					var fm = graphics.getFontMetrics();
-
-					graphics.setColor(Style.Colors.DM);
-					if (node.getParent() != null && h > 0) {
-						graphics.drawLine(X, Y, x[h - 1][i / 2], y[h - 1][i / 2]);
-					}
-
-					Color bg, bd, fg;
-					if(node instanceof RBTNode){
-						if(((RBTNode<? extends Comparable<?>>) node).isRed()){
-							bg = bd = Style.Colors.RED;
-							fg = Style.Colors.BLACK;
-						}
-						else {
-							bg = Style.Colors.BLACK;
-							bd = fg = Style.Colors.GREEN;
-						}
-					}
-					else if(node instanceof AVLNode){
-						bg = Style.Colors.BLACK;
-						if(((AVLNode<? extends Comparable<?>>) node).isLeftHeavy()){
-							bd = fg = Style.Colors.RED;
-						}
-						else if(((AVLNode<? extends Comparable<?>>) node).isRightHeavy()){
-							bd = fg = Style.Colors.BLUE;
-						}
-						else {
-							bd = fg = Style.Colors.GREEN;
-						}
-					}
-					else {
-						bg = Style.Colors.BLACK;
-						bd = fg = Style.Colors.GREEN;
-					}
-
-					graphics.setColor(bg);
-					graphics.fillOval(X - w / 2 - getNodePadding(), Y - d.height / 2 - getNodePadding(), w + getNodePadding() * 2, d.height + getNodePadding() * 2);
-
-					graphics.setColor(bd);
-					graphics.drawOval(X - w / 2 - getNodePadding(), Y - d.height / 2 - getNodePadding(), w + getNodePadding() * 2, d.height + getNodePadding() * 2);
-
-					graphics.setColor(fg);
-					graphics.drawString(
-						GraphicsUtil.withFallbackFont(text, font, ffont).getIterator(),
-						//text,
-						X - d.width / 2,
-						Y - fm.getHeight() / 2 + fm.getAscent()
-					);
+		// Heat is shown compared to the hottest node. The root isn't always it, since rotations and deletes can bring a
+		// node that lookups rarely reached to the top
+		int[] heats = new int[heatmap ? nodes.size() : 0];
+		int maxHeat = 0;
+		for (int i = 0; i < heats.length; i++) maxHeat = Math.max(maxHeat, heats[i] = nodes.get(i).getHeat(epoch));
+
+		for (int i = copies.size() - 1; i >= 0; i--) {
+			var copy = copies.get(i);
+			int leftHeight = copy.hasLeftChild() ? copy.getLeftChild().height : -1;
+			int rightHeight = copy.hasRightChild() ? copy.getRightChild().height : -1;
+			copy.height = 1 + Math.max(leftHeight, rightHeight);
+			copy.kind = (byte) getNodeKind(nodes.get(i), heatmap ? heats[i] : -1, maxHeat, leftHeight - rightHeight);
+		}
+		return copies.get(0);
+	}
+
+	/**
+	 * @param heat    The heat of the node, or -1 to color it by its color or balance instead
+	 * @param maxHeat The heat of the hottest node in the tree
+	 * @param balance The height of the left subtree of the node minus that of the right one
+	 */
+	private static int getNodeKind (BSTNode<?> node, int heat, int maxHeat, int balance) {
+		if (heat >= 0) {
+			if (heat == 0 || maxHeat == 0) return HEAT;
+			// Anything visited at all is at least the first level above cold
+			return HEAT + 1 + (int) Math.min(HEAT_LEVELS - 2, (long) heat * (HEAT_LEVELS - 2) / maxHeat);
+		}
+
+		if(node instanceof RBTNode){
+			return ((RBTNode<? extends Comparable<?>>) node).isRed() ? RED : PLAIN;
+		}
+		else if(node instanceof AVLNode){
+			if(balance > 0) return LEFT_HEAVY;
+			if(balance < 0) return RIGHT_HEAVY;
+		}
+		return PLAIN;
+	}
+
+	/**
+	 * Draws the part of the tree inside a rectangle of the world, or just works out what would be drawn there
+	 *
+	 * @param xOffset  Where the root goes
+	 * @param zoom     How much the graphics are scaled up. Decides which subtrees are summarized
+	 * @param graphics Graphics that draw in world coordinates, or null to draw nothing
+	 * @return A hash of everything drawn in the rectangle. If it is the same as last time, so is the drawing
+	 */
+	final long drawRegion (TreeLayout layout, int xOffset, double left, double top, double right, double bottom, double zoom, Graphics2D graphics) {
+		final TextCache textCache = TreeDrawer.textCache;
+		int textHeight = textCache.get("test string").height;
+		int yOffset = getYOffset();
+
+		// Make room for the nodes sticking out above and below their centers, and for the width of the lines
+		int nodeHeight = textHeight / 2 + getNodePadding();
+		double margin = 2 / zoom;
+		double viewLeft = left - xOffset - margin, viewRight = right - xOffset + margin;
+		double viewTop = top - nodeHeight - margin, viewBottom = bottom + nodeHeight + margin;
+		double collapseWidth = COLLAPSE_WIDTH / zoom;
+
+		FontMetrics fm = null;
+		if (graphics != null) {
+			graphics.setFont(font);
+			fm = graphics.getFontMetrics();
+		}
+
+		long hash = 1;
+		for (int k = 0; k < layout.size; ) {
+			// Skip subtrees that are entirely off screen
+			if (layout.maxX[k] < viewLeft || layout.minX[k] > viewRight
+				|| getLevelY(layout.depth[k], yOffset) > viewBottom || getLevelY(layout.maxDepth[k], yOffset) < viewTop) {
+				k = layout.end[k];
+				continue;
+			}
+
+			int X = layout.x[k] + xOffset, Y = getLevelY(layout.depth[k], yOffset);
+
+			if (layout.end[k] - k > 1 && layout.maxX[k] - layout.minX[k] < collapseWidth) {
+				hash = hash * 31 + (layout.end[k] - k);
+				hash = hash * 31 + ((long) layout.minX[k] << 32 ^ layout.maxX[k]);
+				hash = hash * 31 + ((long) Y << 32 ^ layout.maxDepth[k]);
+				if (graphics != null) drawSummary(layout, k, xOffset, yOffset, graphics, zoom);
+				k = layout.end[k];
+				continue;
+			}
+
+			var d = textCache.get(layout.labels[k]);
+			int kind = layout.kinds[k];
+			int first = layout.firstChild(k), second = layout.secondChild(k);
+			int firstKind = first < 0 ? -1 : layout.kinds[first];
+			int secondKind = second < 0 ? -1 : layout.kinds[second];
+
+			hash = hash * 31 + ((long) X << 32 ^ Y);
+			hash = hash * 31 + layout.labels[k].hashCode();
+			hash = hash * 31 + kind;
+			hash = hash * 31 + (first < 0 ? -1 : ((long) layout.x[first] << 32 ^ layout.depth[first]));
+			hash = hash * 31 + (second < 0 ? -1 : ((long) layout.x[second] << 32 ^ layout.depth[second]));
+			hash = hash * 31 + ((long) firstKind << 32 ^ secondKind);
+
+			if (graphics != null) {
+				// Edges are drawn by the parent, so they still show up when the child is off screen. They are colored
+				// like the child, so that in heatmap mode the busy paths stand out
+				if (first >= 0) {
+					graphics.setColor(edgeColor[firstKind]);
+					drawEdge(layout, first, X, Y, xOffset, yOffset, graphics);
+				}
+				if (second >= 0) {
+					graphics.setColor(edgeColor[secondKind]);
+					drawEdge(layout, second, X, Y, xOffset, yOffset, graphics);
 				}
+
+				var w = getRenderedSize(d) - getNodePadding() * 4;
+
+				graphics.setColor(nodeBackground[kind]);
+				graphics.fillOval(X - w / 2 - getNodePadding(), Y - d.height / 2 - getNodePadding(), w + getNodePadding() * 2, d.height + getNodePadding() * 2);
+
+				graphics.setColor(nodeBorder[kind]);
+				graphics.drawOval(X - w / 2 - getNodePadding(), Y - d.height / 2 - getNodePadding(), w + getNodePadding() * 2, d.height + getNodePadding() * 2);
+
+				graphics.setColor(nodeText[kind]);
+				d.draw(graphics, X - d.width / 2, Y - fm.getHeight() / 2 + fm.getAscent());
 			}
+
+			k++;
 		}
+		return hash;
+	}
+
+	/**
+	 * Draws the edge from (parentX, parentY) to node c, if c is a node
+	 */
+	private static void drawEdge (TreeLayout layout, int c, int parentX, int parentY, int xOffset, int yOffset, Graphics2D graphics) {
+		if (c >= 0) graphics.drawLine(parentX, parentY, layout.x[c] + xOffset, getLevelY(layout.depth[c], yOffset));
+	}
+
+	// Reused by drawSummary, so that drawing doesn't allocate
+	private final int[] triangleX = new int[3], triangleY = new int[3];
+	private final char[] countChars = new char[10];
+
+	/**
+	 * Draws the subtree rooted at node k as a triangle covering its bounds, labelled with its size if that fits
+	 */
+	private void drawSummary (TreeLayout layout, int k, int xOffset, int yOffset, Graphics2D graphics, double zoom) {
+		int X = layout.x[k] + xOffset, Y = getLevelY(layout.depth[k], yOffset);
+		int bottom = getLevelY(layout.maxDepth[k], yOffset);
+		int left = layout.minX[k] + xOffset, right = layout.maxX[k] + xOffset;
+
+		triangleX[0] = X;
+		triangleX[1] = left;
+		triangleX[2] = right;
+		triangleY[0] = Y;
+		triangleY[1] = triangleY[2] = bottom;
+		graphics.setColor(Style.Colors.DM);
+		graphics.fillPolygon(triangleX, triangleY, 3);
+
+		// Write the count into the end of the buffer, lowest digit first
+		int start = countChars.length;
+		for (int count = layout.end[k] - k; count > 0 || start == countChars.length; count /= 10) {
+			countChars[--start] = (char) ('0' + count % 10);
+		}
+		int length = countChars.length - start;
+
+		var fm = graphics.getFontMetrics();
+		int width = fm.charsWidth(countChars, start, length);
+		double scale = 1 / zoom, centerY = (Y + bottom) / 2.0;
+		if (width * scale <= right - left) {
+			// Undo the camera's zoom so the label stays readable, then put it back
+			graphics.translate(X, centerY);
+			graphics.scale(scale, scale);
+			graphics.setColor(Style.Colors.FG);
+			graphics.drawChars(countChars, start, length, -width / 2, fm.getAscent() / 2);
+			graphics.scale(1 / scale, 1 / scale);
+			graphics.translate(-X, -centerY);
+		}
+	}
+
+	static int getLevelY (int h, int yOffset) {
+		return h * 6 * getNodePadding() + yOffset;
 	}
 }
\ No newline at end of file
@@ -6,7 +6,7 @@ import tree.BSTNode;
 import java.awt.*;
 import java.util.*;
 
-public class TreeDrawerInOrder extends TreeDrawer {
+public class TreeDrawerInOrder extends SlotTreeDrawer {
 
 	@Override
 	public int[][] calculatePositions (BSTNode<?>[][] levels, int height) {
@@ -4,7 +4,7 @@ import tree.BSTNode;
 
 import java.awt.Graphics2D;
 
-public class TreeDrawerOffset extends TreeDrawer {
+public class TreeDrawerOffset extends SlotTreeDrawer {
 
 	@Override
 	public int[][] calculatePositions (BSTNode<?>[][] levels, int height) {
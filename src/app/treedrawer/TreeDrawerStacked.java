@@ -5,7 +5,7 @@ import tree.BSTNode;
 import java.awt.Graphics2D;
 import java.util.*;
 
-public class TreeDrawerStacked extends TreeDrawer {
+public class TreeDrawerStacked extends SlotTreeDrawer {
 
 	@Override
 	public int[][] calculatePositions (BSTNode<?>[][] levels, int height) {
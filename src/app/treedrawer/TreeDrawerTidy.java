@@ -0,0 +1,264 @@
+package app.treedrawer;
+
+import tree.AbstractBST;
+
+import java.io.Serial;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out the tree with the Reingold-Tilford algorithm. Each parent is centered over its children, and the two
+ * subtrees of a node are pushed together until their contours are as close as the node widths allow. The contours are
+ * followed through threads from the bottom of shallower subtrees, so the whole layout takes time and memory linear in
+ * the number of nodes, and no recursion, so it handles trees of any shape and height.
+ * <br>
+ * Subtrees only ever touch their own nodes while being laid out, so big subtrees are laid out in parallel on the
+ * common {@link ForkJoinPool}. Only the final pass that turns relative offsets into positions runs on one thread
+ */
+public class TreeDrawerTidy extends TreeDrawer {
+	// Subtrees smaller than this are laid out on one thread, since splitting them up costs more than it saves
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+
+	@Override
+	protected TreeLayout calculateLayout (NodeSnapshot root) {
+		if (root == null) return TreeLayout.EMPTY;
+
+		var work = new Work(root, getNodePadding(), getNodePadding() * 2);
+		if (work.n < PARALLEL_THRESHOLD) work.placeRange(0, work.n);
+		else ForkJoinPool.commonPool().invoke(work.new PlaceSubtree(0));
+
+		// Turn the relative offsets into positions, and center the tree on its root
+		var layout = new TreeLayout.Builder(work.n);
+		final int[] x = new int[work.n];
+		for (int k = 0; k < work.n; k++) {
+			int p = work.parent[k];
+			x[k] = p < 0 ? 0 : x[p] + work.offset[k];
+			layout.add(work.nodes[k], x[k], work.depth[k], p, work.halfWidth[k]);
+		}
+		return layout.build();
+	}
+
+	/**
+	 * The state of one layout. Nodes are numbered in preorder, so every subtree is the range from its root to
+	 * {@link #end}, and children always come after their parent
+	 */
+	private static class Work {
+		final int n, GAP, LR_OFFSET;
+
+		final NodeSnapshot[] nodes;
+		final int[] left, right, parent, depth, end, halfWidth;
+
+		// x of each node relative to its parent
+		final int[] offset;
+
+		// Threads continue a contour from the bottom of a shallower subtree into a deeper neighbouring one.
+		// Only leaves get threads, so they never get in the way of the real children
+		final int[] thread, threadOffset;
+
+		// The leftmost and rightmost nodes on the deepest level of each subtree, with x relative to the subtree root
+		final int[] lMost, rMost, lMostX, rMostX;
+
+		Work (NodeSnapshot root, int gap, int lrOffset) {
+			n = AbstractBST.countNodes(root);
+			GAP = gap;
+			LR_OFFSET = lrOffset;
+
+			nodes = new NodeSnapshot[n];
+			left = new int[n];
+			right = new int[n];
+			parent = new int[n];
+			depth = new int[n];
+			end = new int[n];
+			halfWidth = new int[n];
+			offset = new int[n];
+			thread = new int[n];
+			threadOffset = new int[n];
+			lMost = new int[n];
+			rMost = new int[n];
+			lMostX = new int[n];
+			rMostX = new int[n];
+
+			final NodeSnapshot[] stack = new NodeSnapshot[n];
+			final int[] stackParent = new int[n];
+			int top = 0, count = 0;
+			stack[top] = root;
+			stackParent[top++] = -1;
+
+			while (top > 0) {
+				top--;
+				var node = stack[top];
+				int k = count++, p = stackParent[top];
+
+				nodes[k] = node;
+				parent[k] = p;
+				depth[k] = p < 0 ? 0 : depth[p] + 1;
+				left[k] = right[k] = -1;
+				if (p >= 0) {
+					if (node == nodes[p].getLeftChild()) left[p] = k;
+					else right[p] = k;
+				}
+
+				// Push right first so that left is numbered first
+				if (node.hasRightChild()) {
+					stack[top] = node.getRightChild();
+					stackParent[top++] = k;
+				}
+				if (node.hasLeftChild()) {
+					stack[top] = node.getLeftChild();
+					stackParent[top++] = k;
+				}
+			}
+
+			for (int k = n - 1; k >= 0; k--) {
+				end[k] = Math.max(k + 1, Math.max(right[k] >= 0 ? end[right[k]] : 0, left[k] >= 0 ? end[left[k]] : 0));
+			}
+		}
+
+		int size (int v) {
+			return v < 0 ? 0 : end[v] - v;
+		}
+
+		/**
+		 * Lays out the nodes in [from, to), which must be whole subtrees, on the calling thread
+		 */
+		void placeRange (int from, int to) {
+			// Going backwards every subtree is laid out before its parent
+			for (int v = to - 1; v >= from; v--) place(v);
+		}
+
+		/**
+		 * Places the children of v relative to v. Both subtrees of v must already be laid out
+		 */
+		void place (int v) {
+			thread[v] = -1;
+			halfWidth[v] = getHalfWidth(nodes[v]);
+			int L = left[v], R = right[v];
+
+			if (L < 0 && R < 0) {
+				lMost[v] = rMost[v] = v;
+				lMostX[v] = rMostX[v] = 0;
+				return;
+			}
+
+			if (L < 0 || R < 0) {
+				// A single child goes a bit to its side, like in the stacked layouts
+				int c = L < 0 ? R : L;
+				offset[c] = L < 0 ? LR_OFFSET : -LR_OFFSET;
+				lMost[v] = lMost[c];
+				rMost[v] = rMost[c];
+				lMostX[v] = lMostX[c] + offset[c];
+				rMostX[v] = rMostX[c] + offset[c];
+				return;
+			}
+
+			// Walk down the right contour of the left subtree and the left contour of the right subtree together,
+			// finding how far apart the subtree roots must be for the contours not to overlap
+			int l = L, r = R, lx = 0, rx = 0;
+			int sep = 0;
+			while (l >= 0 && r >= 0) {
+				sep = Math.max(sep, lx - rx + halfWidth[l] + halfWidth[r] + GAP);
+
+				if (right[l] >= 0) {
+					l = right[l];
+					lx += offset[l];
+				} else if (left[l] >= 0) {
+					l = left[l];
+					lx += offset[l];
+				} else {
+					lx += threadOffset[l];
+					l = thread[l];
+				}
+
+				if (left[r] >= 0) {
+					r = left[r];
+					rx += offset[r];
+				} else if (right[r] >= 0) {
+					r = right[r];
+					rx += offset[r];
+				} else {
+					rx += threadOffset[r];
+					r = thread[r];
+				}
+			}
+
+			// Center the parent over its children
+			offset[L] = -(sep / 2);
+			offset[R] = offset[L] + sep;
+
+			int lDepth = depth[lMost[L]], rDepth = depth[lMost[R]];
+			if (lDepth < rDepth) {
+				// Right subtree is deeper. The left contour continues from the bottom of the left subtree into it
+				thread[lMost[L]] = r;
+				threadOffset[lMost[L]] = (rx + offset[R]) - (lMostX[L] + offset[L]);
+
+				lMost[v] = lMost[R];
+				lMostX[v] = lMostX[R] + offset[R];
+			} else {
+				lMost[v] = lMost[L];
+				lMostX[v] = lMostX[L] + offset[L];
+			}
+
+			if (rDepth < lDepth) {
+				// Left subtree is deeper. The right contour continues from the bottom of the right subtree into it
+				thread[rMost[R]] = l;
+				threadOffset[rMost[R]] = (lx + offset[L]) - (rMostX[R] + offset[R]);
+
+				rMost[v] = rMost[L];
+				rMostX[v] = rMostX[L] + offset[L];
+			} else {
+				rMost[v] = rMost[R];
+				rMostX[v] = rMostX[R] + offset[R];
+			}
+		}
+
+		/**
+		 * Lays out a subtree, splitting it into tasks for each big side subtree.
+		 * To keep the task depth down on tall trees, the chain of nodes with only one big child is walked in a loop
+		 * rather than with a task per node; those nodes are placed once everything below them is done
+		 */
+		class PlaceSubtree extends RecursiveAction {
+			@Serial
+			private static final long serialVersionUID = 1L;
+
+			private final int root;
+
+			PlaceSubtree (int root) {
+				this.root = root;
+			}
+
+			@Override
+			protected void compute () {
+				if (size(root) < PARALLEL_THRESHOLD) {
+					placeRange(root, end[root]);
+					return;
+				}
+
+				var tasks = new ArrayList<PlaceSubtree>();
+				var chain = new ArrayList<Integer>();
+
+				int v = root;
+				while (v >= 0 && size(v) >= PARALLEL_THRESHOLD) {
+					chain.add(v);
+					int L = left[v], R = right[v];
+
+					if (size(L) >= PARALLEL_THRESHOLD && size(R) >= PARALLEL_THRESHOLD) {
+						tasks.add(new PlaceSubtree(L));
+						tasks.add(new PlaceSubtree(R));
+						v = -1;
+					} else {
+						int big = size(L) >= size(R) ? L : R, small = big == L ? R : L;
+						if (small >= 0) tasks.add(new PlaceSubtree(small));
+						v = big;
+					}
+				}
+				if (v >= 0) tasks.add(new PlaceSubtree(v));
+
+				ForkJoinTask.invokeAll(tasks);
+
+				for (int i = chain.size() - 1; i >= 0; i--) place(chain.get(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package app.treedrawer;
+
+import app.Style;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves layouts to files without needing a display. PNGs are drawn the same way as on screen, scaled down to fit in
+ * {@link #MAX_PIXELS}. SVGs are written one node at a time straight to the file, so they need no more memory than
+ * the layout itself however big the tree is
+ */
+public class TreeExporter {
+	// Empty space around the tree
+	private static final int MARGIN = 20;
+
+	// The largest PNG to make. Bigger trees are scaled down, and their small subtrees summarized
+	private static final int MAX_SIDE = 8192, MAX_PIXELS = 1 << 24;
+
+	/**
+	 * @param drawer The drawer the layout came from
+	 * @return The number of nodes in the layout
+	 */
+	public static int writePng (TreeDrawer drawer, TreeLayout layout, Path file) throws IOException {
+		int xOffset = getXOffset(layout);
+		double width = getWidth(layout), height = getHeight(layout);
+		double zoom = Math.min(1, Math.min(Math.min(MAX_SIDE / width, MAX_SIDE / height), Math.sqrt(MAX_PIXELS / (width * height))));
+
+		var image = new BufferedImage(
+			Math.max(1, (int) Math.ceil(width * zoom)), Math.max(1, (int) Math.ceil(height * zoom)), BufferedImage.TYPE_INT_RGB
+		);
+		Graphics2D graphics = image.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		graphics.setColor(Style.Colors.BLACK);
+		graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+		graphics.scale(zoom, zoom);
+
+		drawer.drawRegion(layout, xOffset, 0, 0, width, height, zoom, graphics);
+		graphics.dispose();
+
+		if (!ImageIO.write(image, "png", file.toFile())) throw new IOException("No PNG writer available");
+		return layout.size();
+	}
+
+	/**
+	 * @return The number of nodes in the layout
+	 */
+	public static int writeSvg (TreeLayout layout, Path file) throws IOException {
+		try (
+			FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16)
+		) {
+			writeSvg(layout, out);
+		}
+		return layout.size();
+	}
+
+	/**
+	 * Writes the layout as an SVG document. Nodes are written in preorder, each after the edges to its children, so
+	 * that nodes cover the ends of the edges like they do on screen
+	 */
+	public static void writeSvg (TreeLayout layout, Writer out) throws IOException {
+		int xOffset = getXOffset(layout), yOffset = TreeDrawer.getYOffset();
+		int padding = TreeDrawer.getNodePadding();
+		var textCache = TreeDrawer.getTextCache();
+
+		out.write(String.format(
+			"<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%d\" height=\"%d\" font-family=\"%s, monospace\" font-size=\"%d\" text-anchor=\"middle\" dominant-baseline=\"central\">\n",
+			getWidth(layout), getHeight(layout), escape(TreeDrawer.font.getFamily()), TreeDrawer.font.getSize()
+		));
+		out.write("<rect width=\"100%\" height=\"100%\" fill=\"" + toHex(Style.Colors.BLACK) + "\"/>\n");
+		out.write("<g stroke=\"" + toHex(Style.Colors.DM) + "\">\n");
+
+		String[] background = toHex(TreeDrawer.nodeBackground), border = toHex(TreeDrawer.nodeBorder), text = toHex(TreeDrawer.nodeText);
+		// Edges only need their own color in heatmap mode. Otherwise they all use the group's
+		String[] edges = TreeDrawer.isHeatmap() ? toHex(TreeDrawer.edgeColor) : null;
+
+		StringBuilder sb = new StringBuilder();
+		for (int k = 0; k < layout.size; k++) {
+			sb.setLength(0);
+			int X = layout.x[k] + xOffset, Y = TreeDrawer.getLevelY(layout.depth[k], yOffset);
+
+			appendEdge(sb, layout, layout.firstChild(k), X, Y, xOffset, yOffset, edges);
+			appendEdge(sb, layout, layout.secondChild(k), X, Y, xOffset, yOffset, edges);
+
+			var d = textCache.get(layout.labels[k]);
+			int w = TreeDrawer.getRenderedSize(d) - padding * 4;
+			int kind = layout.kinds[k];
+
+			sb.append("<ellipse cx=\"").append(X).append("\" cy=\"").append(Y)
+			  .append("\" rx=\"").append(w / 2.0 + padding).append("\" ry=\"").append(d.height / 2.0 + padding)
+			  .append("\" fill=\"").append(background[kind]).append("\" stroke=\"").append(border[kind]).append("\"/>\n");
+			sb.append("<text x=\"").append(X).append("\" y=\"").append(Y)
+			  .append("\" fill=\"").append(text[kind]).append("\" stroke=\"none\">")
+			  .append(escape(layout.labels[k])).append("</text>\n");
+
+			out.append(sb);
+		}
+
+		out.write("</g>\n</svg>\n");
+	}
+
+	/**
+	 * Appends the edge from (parentX, parentY) to node c, if c is a node
+	 *
+	 * @param colors The color of the edge to each kind of node, or null to leave edges the default color
+	 */
+	private static void appendEdge (StringBuilder sb, TreeLayout layout, int c, int parentX, int parentY, int xOffset, int yOffset, String[] colors) {
+		if (c < 0) return;
+		sb.append("<line x1=\"").append(parentX).append("\" y1=\"").append(parentY)
+		  .append("\" x2=\"").append(layout.x[c] + xOffset)
+		  .append("\" y2=\"").append(TreeDrawer.getLevelY(layout.depth[c], yOffset)).append('"');
+		if (colors != null) sb.append(" stroke=\"").append(colors[layout.kinds[c]]).append('"');
+		sb.append("/>\n");
+	}
+
+	/**
+	 * @return Where to put the root so that the left edge of the tree is at the margin
+	 */
+	private static int getXOffset (TreeLayout layout) {
+		return layout.size() == 0 ? MARGIN : MARGIN - layout.minX[0];
+	}
+
+	private static int getWidth (TreeLayout layout) {
+		return layout.getWidth() + MARGIN * 2;
+	}
+
+	private static int getHeight (TreeLayout layout) {
+		int nodeHeight = TreeDrawer.getTextCache().get("test string").height / 2 + TreeDrawer.getNodePadding();
+		return TreeDrawer.getLevelY(Math.max(layout.getLevels() - 1, 0), TreeDrawer.getYOffset()) + nodeHeight + MARGIN;
+	}
+
+	private static String toHex (Color color) {
+		return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+	}
+
+	private static String[] toHex (Color[] colors) {
+		String[] res = new String[colors.length];
+		for (int i = 0; i < colors.length; i++) res[i] = toHex(colors[i]);
+		return res;
+	}
+
+	private static String escape (String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+	}
+}
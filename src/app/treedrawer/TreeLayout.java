@@ -0,0 +1,178 @@
+package app.treedrawer;
+
+import tree.BSTNode;
+
+import java.util.*;
+
+/**
+ * The position of every node in a tree. Nodes are stored in preorder, so every subtree is the range of indices from
+ * its root to {@link #end}. Along with each node, the bounds of its subtree are kept so that whole subtrees can be
+ * skipped or summarized when drawing. Memory is linear in the number of nodes
+ */
+public class TreeLayout {
+	public static final TreeLayout EMPTY = new Builder(0).build();
+
+	final int size;
+
+	// The text and kind of each node when the layout was made, so drawing doesn't build strings or look at the tree
+	final String[] labels;
+	final byte[] kinds;
+
+	// x is the center of the node, relative to the center of the tree. depth is the level of the node
+	final int[] x, depth;
+
+	// Index just past the last node of the subtree
+	final int[] end;
+
+	// Bounds of the subtree, including the width of the nodes
+	final int[] minX, maxX, maxDepth;
+
+	private TreeLayout (Builder b) {
+		size = b.size;
+		labels = b.labels;
+		kinds = b.kinds;
+		x = b.x;
+		depth = b.depth;
+		end = new int[size];
+		minX = new int[size];
+		maxX = new int[size];
+		maxDepth = new int[size];
+
+		// Children always come after their parent, so going backwards every subtree is complete before its parent
+		for (int k = 0; k < size; k++) {
+			end[k] = k + 1;
+			minX[k] = x[k] - b.halfWidth[k];
+			maxX[k] = x[k] + b.halfWidth[k];
+			maxDepth[k] = depth[k];
+		}
+		for (int k = size - 1; k > 0; k--) {
+			int p = b.parent[k];
+			end[p] = Math.max(end[p], end[k]);
+			minX[p] = Math.min(minX[p], minX[k]);
+			maxX[p] = Math.max(maxX[p], maxX[k]);
+			maxDepth[p] = Math.max(maxDepth[p], maxDepth[k]);
+		}
+	}
+
+	public int size () {
+		return size;
+	}
+
+	/**
+	 * @return The number of levels in the tree
+	 */
+	public int getLevels () {
+		return size == 0 ? 0 : maxDepth[0] + 1;
+	}
+
+	/**
+	 * @return The total width of the tree
+	 */
+	public int getWidth () {
+		return size == 0 ? 0 : maxX[0] - minX[0];
+	}
+
+	/**
+	 * @return The index of the left child of node k if it has one, otherwise of its right child, or -1 for a leaf
+	 */
+	int firstChild (int k) {
+		return end[k] > k + 1 ? k + 1 : -1;
+	}
+
+	/**
+	 * @return The index of the right child of node k if it has both children, otherwise -1
+	 */
+	int secondChild (int k) {
+		int c = k + 1;
+		return end[k] > c && end[c] < end[k] ? end[c] : -1;
+	}
+
+	/**
+	 * Converts a layout indexed by heap slot, as returned by {@link SlotTreeDrawer#calculatePositions}
+	 *
+	 * @param levels     The slots of a copy of the tree made by {@link TreeDrawer#copyTree}
+	 * @param halfWidths Gives half the drawn width of each node
+	 */
+	static TreeLayout fromLevels (BSTNode<?>[][] levels, int[][] x, NodeWidth halfWidths) {
+		if (levels.length == 0) return EMPTY;
+
+		int count = 0;
+		for (var level : levels)
+			for (var node : level)
+				if (node != null) count++;
+
+		Builder b = new Builder(count);
+
+		// Preorder walk over the slots, keeping the slot's index in the layout on the stack along with it
+		int[] stackH = new int[levels.length * 2], stackI = new int[levels.length * 2], stackParent = new int[levels.length * 2];
+		int top = 0;
+		stackH[top] = 0;
+		stackI[top] = 0;
+		stackParent[top++] = -1;
+
+		while (top > 0) {
+			top--;
+			int h = stackH[top], i = stackI[top];
+			var node = (NodeSnapshot) levels[h][i];
+			int k = b.add(node, x[h][i], h, stackParent[top], halfWidths.of(node));
+
+			// Push right first so that left is visited first
+			if (node.hasRightChild()) {
+				stackH[top] = h + 1;
+				stackI[top] = i * 2 + 1;
+				stackParent[top++] = k;
+			}
+			if (node.hasLeftChild()) {
+				stackH[top] = h + 1;
+				stackI[top] = i * 2;
+				stackParent[top++] = k;
+			}
+		}
+
+		return b.build();
+	}
+
+	interface NodeWidth {
+		int of (BSTNode<?> node);
+	}
+
+	/**
+	 * Collects nodes in preorder
+	 */
+	static class Builder {
+		private final String[] labels;
+		private final byte[] kinds;
+		private final int[] x, depth, parent, halfWidth;
+		private int size = 0;
+
+		Builder (int capacity) {
+			labels = new String[capacity];
+			kinds = new byte[capacity];
+			x = new int[capacity];
+			depth = new int[capacity];
+			parent = new int[capacity];
+			halfWidth = new int[capacity];
+		}
+
+		/**
+		 * Adds the next node in preorder
+		 *
+		 * @param parent The index of the node's parent, or -1 for the root
+		 * @return the index of the node
+		 */
+		int add (NodeSnapshot node, int x, int depth, int parent, int halfWidth) {
+			labels[size] = node.getValue();
+			kinds[size] = node.kind;
+			this.x[size] = x;
+			this.depth[size] = depth;
+			this.parent[size] = parent;
+			this.halfWidth[size] = halfWidth;
+			return size++;
+		}
+
+		TreeLayout build () {
+			assert size == labels.length : "Layout is missing nodes";
+			return new TreeLayout(this);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package bench;
+
+import java.util.*;
+
+/**
+ * Ways of choosing a sequence of int keys. The same size and seed always give the same keys. Keys can repeat, except
+ * in {@link #SORTED} and {@link #REVERSE}
+ */
+public enum KeyDistribution {
+	/**
+	 * Any key in [0, 4 * size), all equally likely
+	 */
+	UNIFORM {
+		@Override
+		public int[] generate (int size, long seed) {
+			Random random = new Random(seed);
+			int[] res = new int[size];
+			for (int i = 0; i < size; i++) res[i] = random.nextInt(Math.max(1, size * 4));
+			return res;
+		}
+	},
+	/**
+	 * 0, 1, 2, ... The worst case for trees that don't balance themselves
+	 */
+	SORTED {
+		@Override
+		public int[] generate (int size, long seed) {
+			int[] res = new int[size];
+			for (int i = 0; i < size; i++) res[i] = i;
+			return res;
+		}
+	},
+	/**
+	 * size - 1, size - 2, ..., 0
+	 */
+	REVERSE {
+		@Override
+		public int[] generate (int size, long seed) {
+			int[] res = new int[size];
+			for (int i = 0; i < size; i++) res[i] = size - 1 - i;
+			return res;
+		}
+	},
+	/**
+	 * Keys in [0, size) where the k-th most common key comes up about 1 / k as often as the most common one. The most
+	 * common keys are spread out rather than all being small
+	 */
+	ZIPF {
+		@Override
+		public int[] generate (int size, long seed) {
+			Random random = new Random(seed);
+
+			// Which key has each rank
+			int[] keys = SORTED.generate(size, seed);
+			shuffle(keys, random);
+
+			double[] cumulative = new double[size];
+			double total = 0;
+			for (int rank = 0; rank < size; rank++) cumulative[rank] = total += 1.0 / (rank + 1);
+
+			int[] res = new int[size];
+			for (int i = 0; i < size; i++) {
+				int rank = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+				res[i] = keys[Math.min(rank < 0 ? -rank - 1 : rank, size - 1)];
+			}
+			return res;
+		}
+	},
+	/**
+	 * Keys bunched around a few random centers in [0, 4 * size), each bunch spread normally with a deviation of
+	 * {@value #CLUSTER_SPREAD}
+	 */
+	CLUSTERED {
+		@Override
+		public int[] generate (int size, long seed) {
+			Random random = new Random(seed);
+			int[] centers = new int[Math.max(1, size / CLUSTER_SIZE)];
+			for (int i = 0; i < centers.length; i++) centers[i] = random.nextInt(Math.max(1, size * 4));
+
+			int[] res = new int[size];
+			for (int i = 0; i < size; i++) {
+				res[i] = centers[random.nextInt(centers.length)] + (int) Math.round(random.nextGaussian() * CLUSTER_SPREAD);
+			}
+			return res;
+		}
+	};
+
+	private static final int CLUSTER_SIZE = 1000, CLUSTER_SPREAD = 100;
+
+	/**
+	 * @return size keys
+	 */
+	public abstract int[] generate (int size, long seed);
+
+	static void shuffle (int[] a, Random random) {
+		for (int i = a.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1), t = a[i];
+			a[i] = a[j];
+			a[j] = t;
+		}
+	}
+}
@@ -0,0 +1,315 @@
+package bench;
+
+import tree.AVLTree;
+import tree.AbstractBST;
+import tree.BST;
+import tree.ConcurrentRBT;
+import tree.JolaTree;
+import tree.RBT;
+import tree.ShardedTree;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Hammers one tree from many threads at once with a mix of inserts, deletes, lookups and full iterations. The run is
+ * split into phases. Between phases every thread stops, and the tree is checked with
+ * {@link AbstractBST#checkInvariants()} while nothing is changing it.
+ * <br>
+ * Reports the total throughput, how evenly the threads got to run, and how long they spent blocked waiting for the
+ * tree's lock.
+ * <br>
+ * Usage: <pre>
+ * java bench.StressTest [--tree rbt|avl|bst|jola|sharded-rbt|sharded-avl|concurrent-rbt] [--threads 8]
+ *                       [--mix 40,20,35,5] [--keys 10000] [--phases 5] [--time 1000] [--shards 8]
+ * </pre>
+ * {@code --mix} is the relative amounts of inserts, deletes, lookups and iterations, and {@code --time} is how long
+ * each phase runs for, in ms. {@code --shards} is the number of shards a {@link ShardedTree} aims for, and defaults to
+ * the number of threads.
+ * <br>
+ * Exits with 1 if the tree breaks its invariants, a worker throws, or the workers stop reaching the end of a phase
+ */
+public class StressTest {
+	private static final Map<String, Supplier<AbstractBST<Integer, ?>>> trees = Map.of(
+		"bst", BST::new, "avl", AVLTree::new, "rbt", RBT::new, "jola", JolaTree::new
+	);
+
+	// Sharded trees, made with the number of shards to aim for
+	private static final Map<String, IntFunction<ShardedTree<Integer>>> shardedTrees = Map.of(
+		"sharded-rbt", shards -> new ShardedTree<>(RBT::new, shards),
+		"sharded-avl", shards -> new ShardedTree<>(AVLTree::new, shards)
+	);
+
+	// How much longer than a phase the workers get to reach the barrier at its end, before the run counts as stuck
+	private static final long BARRIER_GRACE_MILLIS = 10_000;
+
+	private static final int INSERT = 0, DELETE = 1, LOOKUP = 2, ITERATE = 3;
+	private static final String[] OPERATION_NAMES = {"inserts", "deletes", "lookups", "iterations"};
+
+	private String treeName = "rbt";
+	private int threadCount = 8, keys = 10000, phases = 5, shards = 0;
+	private long phaseMillis = 1000;
+	private int[] mix = {40, 20, 35, 5};
+
+	// One of these is set, depending on the kind of tree
+	private AbstractBST<Integer, ?> bst;
+	private ShardedTree<Integer> sharded;
+	private ConcurrentRBT<Integer> concurrent;
+	private Collection<Integer> tree;
+	private Worker[] workers;
+	private CyclicBarrier barrier;
+	private volatile boolean running;
+	private volatile Throwable failure;
+
+	// Iterations write their sums here, so that the JIT can't leave out the work
+	private static volatile long sink;
+
+	public static void main (String[] args) throws InterruptedException {
+		var test = new StressTest();
+		try {
+			test.parseArgs(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		System.exit(test.run() ? 0 : 1);
+	}
+
+	private void parseArgs (String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value after " + args[i]);
+			String value = args[++i];
+			switch (args[i - 1]) {
+				case "--tree" -> {
+					String name = value.toLowerCase();
+					if (!trees.containsKey(name) && !shardedTrees.containsKey(name) && !name.equals("concurrent-rbt")) {
+						Set<String> names = new TreeSet<>(trees.keySet());
+						names.addAll(shardedTrees.keySet());
+						names.add("concurrent-rbt");
+						throw new IllegalArgumentException("Unknown tree \"" + value + "\". Must be one of " + names);
+					}
+					treeName = value.toLowerCase();
+				}
+				case "--threads" -> threadCount = Math.max(1, Integer.parseInt(value));
+				case "--keys" -> keys = Math.max(1, Integer.parseInt(value));
+				case "--phases" -> phases = Math.max(1, Integer.parseInt(value));
+				case "--shards" -> shards = Math.max(1, Integer.parseInt(value));
+				case "--time" -> phaseMillis = Long.parseLong(value);
+				case "--mix" -> {
+					mix = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+					if (mix.length != 4 || Arrays.stream(mix).anyMatch(m -> m < 0) || Arrays.stream(mix).sum() == 0)
+						throw new IllegalArgumentException("--mix needs 4 amounts that are at least 0 and not all 0");
+				}
+				default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+			}
+		}
+	}
+
+	/**
+	 * @return Whether the tree stayed valid and nothing threw
+	 */
+	private boolean run () throws InterruptedException {
+		if (treeName.equals("concurrent-rbt")) {
+			tree = concurrent = new ConcurrentRBT<>();
+		} else if (shardedTrees.containsKey(treeName)) {
+			tree = sharded = shardedTrees.get(treeName).apply(shards > 0 ? shards : threadCount);
+		} else {
+			tree = bst = trees.get(treeName).get();
+			bst.setTracing(false);
+		}
+
+		ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		if (mx.isThreadContentionMonitoringSupported()) mx.setThreadContentionMonitoringEnabled(true);
+
+		// The workers and this thread meet here at the start and end of every phase
+		barrier = new CyclicBarrier(threadCount + 1);
+		workers = new Worker[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			workers[i] = new Worker(i);
+			workers[i].start();
+		}
+
+		System.out.printf("Stress testing %s with %d threads, mix %s of %s, keys in [0, %d)%n",
+			bst == null ? treeName : bst.getClass().getSimpleName(), threadCount, Arrays.toString(mix), String.join("/", OPERATION_NAMES), keys);
+
+		boolean valid = true;
+		long elapsed = 0;
+		for (int phase = 1; phase <= phases && failure == null; phase++) {
+			running = true;
+			long start = System.nanoTime();
+			if (!awaitWorkers(phase)) break;
+			Thread.sleep(phaseMillis);
+			running = false;
+			if (failure != null || !awaitWorkers(phase)) break;
+			elapsed += System.nanoTime() - start;
+
+			// Every worker is waiting for the next phase, so the tree is quiet
+			var problems = sharded != null ? sharded.checkInvariants() : concurrent != null ? concurrent.checkInvariants() : bst.checkInvariants();
+			int height = sharded != null ? sharded.getHeight() : concurrent != null ? concurrent.getHeight() : bst.getHeight();
+			System.out.printf("Phase %d: %d ops, size %d, height %d, %s%s%n",
+				phase, totalOps(), tree.size(), height,
+				sharded != null ? sharded.getShardCount() + " shards, " : "", problems.isEmpty() ? "valid" : problems.size() + " problems");
+			for (var problem : problems.subList(0, Math.min(problems.size(), 10))) System.out.println("    " + problem);
+			valid &= problems.isEmpty();
+			if (!problems.isEmpty()) break;
+		}
+
+		running = false;
+		for (var worker : workers) worker.interrupt();
+		// A worker that failed may have left the tree broken enough to never finish an operation
+		for (var worker : workers) worker.join(BARRIER_GRACE_MILLIS);
+
+		if (failure != null) {
+			System.out.println("A worker failed:");
+			failure.printStackTrace(System.out);
+		}
+		report(mx, elapsed);
+		if (sharded != null) {
+			long[] changes = sharded.getSplitsAndMerges();
+			System.out.printf("Shards: %d after %d splits and %d merges, sizes %s%n",
+				sharded.getShardCount(), changes[0], changes[1], Arrays.toString(sharded.getShardSizes()));
+		}
+		return valid && failure == null;
+	}
+
+	/**
+	 * Waits for every worker to reach the barrier. A worker that throws breaks the barrier, so this returns as soon as
+	 * one fails
+	 *
+	 * @return Whether they all got there. If not, {@link #failure} says why
+	 */
+	private boolean awaitWorkers (int phase) throws InterruptedException {
+		try {
+			barrier.await(phaseMillis + BARRIER_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (BrokenBarrierException e) {
+			if (failure == null) failure = new IllegalStateException("The barrier broke in phase " + phase + " without a worker failing", e);
+		} catch (TimeoutException e) {
+			// Timing out breaks the barrier, which stops the workers waiting at it
+			if (failure == null) failure = new TimeoutException("The workers didn't reach the barrier in phase " + phase + " within " + (phaseMillis + BARRIER_GRACE_MILLIS) + " ms");
+		}
+		return false;
+	}
+
+	private long totalOps () {
+		long res = 0;
+		for (var worker : workers) res += worker.getTotal();
+		return res;
+	}
+
+	private void report (ThreadMXBean mx, long elapsedNanos) {
+		long total = totalOps();
+		System.out.printf("Throughput: %.0f ops/sec over %.3f s%n", total / Math.max(elapsedNanos / 1e9, 1e-9), elapsedNanos / 1e9);
+
+		long[] byOperation = new long[OPERATION_NAMES.length];
+		for (var worker : workers) for (int i = 0; i < byOperation.length; i++) byOperation[i] += worker.counts[i];
+		StringBuilder sb = new StringBuilder("Operations:");
+		for (int i = 0; i < byOperation.length; i++) sb.append(' ').append(byOperation[i]).append(' ').append(OPERATION_NAMES[i]).append(i + 1 < byOperation.length ? "," : "");
+		System.out.println(sb);
+
+		// Jain's fairness index: 1 when every thread did the same amount, 1 / threads when one thread did everything
+		double sum = 0, sumSquares = 0;
+		long min = Long.MAX_VALUE, max = 0;
+		for (var worker : workers) {
+			long ops = worker.getTotal();
+			sum += ops;
+			sumSquares += (double) ops * ops;
+			min = Math.min(min, ops);
+			max = Math.max(max, ops);
+		}
+		System.out.printf("Fairness: %.3f (ops per thread min %d, mean %.0f, max %d)%n",
+			sumSquares == 0 ? 1 : sum * sum / (workers.length * sumSquares), min, sum / workers.length, max);
+
+		if (!mx.isThreadContentionMonitoringEnabled()) {
+			System.out.println("Lock contention: not measured, since this JVM can't monitor thread contention");
+			return;
+		}
+		long blockedMillis = 0, blockedCount = 0;
+		for (var worker : workers) {
+			blockedMillis += worker.blockedMillis;
+			blockedCount += worker.blockedCount;
+		}
+		// Only counts waiting for monitors, so not the node locks of ConcurrentRBT, which park threads instead
+		System.out.printf("Lock contention: blocked %d times for %d ms in total, %.1f%% of the threads' time%n",
+			blockedCount, blockedMillis, 100.0 * blockedMillis / Math.max(1, workers.length * elapsedNanos / 1e6));
+	}
+
+	private class Worker extends Thread {
+		// Only written by this worker, and read by the main thread once the worker is waiting at the barrier
+		final long[] counts = new long[OPERATION_NAMES.length];
+		long blockedMillis, blockedCount;
+
+		private final long id;
+
+		// Thread.threadId() replaces getId() from Java 19 on, but this builds for Java 18
+		@SuppressWarnings("deprecation")
+		Worker (int index) {
+			super("Stress worker " + index);
+			setDaemon(true);
+			id = getId();
+		}
+
+		long getTotal () {
+			long res = 0;
+			for (long count : counts) res += count;
+			return res;
+		}
+
+		@Override
+		public void run () {
+			var random = ThreadLocalRandom.current();
+			int[] thresholds = new int[mix.length];
+			for (int i = 0, sum = 0; i < mix.length; i++) thresholds[i] = sum += mix[i];
+
+			try {
+				while (true) {
+					barrier.await();
+					while (running && failure == null) {
+						int pick = random.nextInt(thresholds[thresholds.length - 1]), key = random.nextInt(keys);
+						int op = pick < thresholds[INSERT] ? INSERT : pick < thresholds[DELETE] ? DELETE : pick < thresholds[LOOKUP] ? LOOKUP : ITERATE;
+						switch (op) {
+							case INSERT -> tree.add(key);
+							case DELETE -> tree.remove(key);
+							case LOOKUP -> tree.contains(key);
+							case ITERATE -> {
+								// Tree iterators aren't safe against changes, so hold the tree's lock for the whole
+								// iteration. Sharded and concurrent trees copy what they iterate, so they don't need it
+								synchronized (bst == null ? this : bst) {
+									long sum = 0;
+									for (int value : tree) sum += value;
+									sink = sum;
+								}
+							}
+						}
+						counts[op]++;
+					}
+					recordContention();
+					barrier.await();
+				}
+			} catch (InterruptedException | BrokenBarrierException e) {
+				// Stopped by the main thread, or another thread failed
+			} catch (Throwable e) {
+				if (failure == null) failure = e;
+				recordContention();
+				// Wakes everyone waiting at the barrier, and the main thread stops the run when it sees the failure
+				barrier.reset();
+			}
+		}
+
+		private void recordContention () {
+			var info = ManagementFactory.getThreadMXBean().getThreadInfo(id);
+			if (info != null) {
+				blockedMillis = Math.max(0, info.getBlockedTime());
+				blockedCount = info.getBlockedCount();
+			}
+		}
+	}
+}
@@ -0,0 +1,329 @@
+package bench;
+
+import tree.AVLTree;
+import tree.AbstractBST;
+import tree.BST;
+import tree.JolaTree;
+import tree.RBT;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Measures the throughput and allocation of each tree, with {@link TreeMultiset} as the baseline, for every
+ * combination of operation, key distribution and size. Each benchmark is warmed up and then measured over several
+ * iterations, and work that only prepares a benchmark (like building the tree to delete from) isn't timed.
+ * <br>
+ * Everything runs in one JVM, so later benchmarks run on code the JIT has already seen used with other trees. Run
+ * one tree at a time with {@code --trees} for numbers that can't be affected by that.
+ * <br>
+ * Usage: <pre>
+ * java bench.TreeBenchmark [--trees rbt,avl,...] [--ops insert,contains,...] [--keys uniform,zipf,...]
+ *                          [--sizes 1000,10000] [--warmup 2] [--iterations 5] [--time 200]
+ * </pre>
+ * {@code --time} is how long each iteration runs for, in ms
+ */
+public class TreeBenchmark {
+	public enum Implementation {
+		BST(BST::new),
+		AVL(AVLTree::new),
+		RBT(RBT::new),
+		JOLA(JolaTree::new),
+		// A TreeMap from each key to its count, which keeps duplicates like the trees do
+		TREE_MAP(TreeMultiset::new);
+
+		private final Supplier<Collection<Integer>> constructor;
+
+		Implementation (Supplier<Collection<Integer>> constructor) {
+			this.constructor = constructor;
+		}
+
+		Collection<Integer> make () {
+			var res = constructor.get();
+			if (res instanceof AbstractBST<?, ?> bst) bst.setTracing(false);
+			return res;
+		}
+
+		Collection<Integer> make (int[] keys) {
+			var res = make();
+			for (int key : keys) res.add(key);
+			return res;
+		}
+
+		/**
+		 * @return The number of values in both. {@link AbstractBST#intersection} for the trees, and the same thing done
+		 * by hand for {@link TreeMultiset}
+		 */
+		int intersect (Collection<Integer> c, List<Integer> values) {
+			if (c instanceof AbstractBST<Integer, ?> bst) return bst.intersection(values).size();
+
+			TreeMultiset<Integer> res = new TreeMultiset<>();
+			for (var value : values) if (c.contains(value)) res.add(value);
+			return res.size();
+		}
+	}
+
+	/**
+	 * One run of a benchmark
+	 */
+	private interface Trial {
+		/**
+		 * Gets ready for the next run. Not timed
+		 */
+		default void setUp () {}
+
+		/**
+		 * @return The number of operations done
+		 */
+		long run ();
+	}
+
+	public enum Operation {
+		INSERT {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				return new Trial() {
+					Collection<Integer> c;
+
+					public void setUp () {
+						c = impl.make();
+					}
+
+					public long run () {
+						for (int key : keys) c.add(key);
+						return keys.length;
+					}
+				};
+			}
+		},
+		DELETE {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				int[] order = keys.clone();
+				KeyDistribution.shuffle(order, new Random(SEED));
+				return new Trial() {
+					Collection<Integer> c;
+
+					public void setUp () {
+						c = impl.make(keys);
+					}
+
+					public long run () {
+						for (int key : order) c.remove(key);
+						return order.length;
+					}
+				};
+			}
+		},
+		CONTAINS {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				var c = impl.make(keys);
+				return () -> {
+					int found = 0;
+					for (int probe : probes) if (c.contains(probe)) found++;
+					sink += found;
+					return probes.length;
+				};
+			}
+		},
+		ITERATE {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				var c = impl.make(keys);
+				return () -> {
+					long sum = 0, count = 0;
+					for (int value : c) {
+						sum += value;
+						count++;
+					}
+					sink += sum;
+					return count;
+				};
+			}
+		},
+		INTERSECTION {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				var c = impl.make(keys);
+				var values = toList(probes);
+				return () -> {
+					sink += impl.intersect(c, values);
+					return values.size();
+				};
+			}
+		},
+		RETAIN_ALL {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				// A set, so that the baseline's retainAll isn't slowed down by searching a list for every value
+				var values = new HashSet<>(toList(probes));
+				return new Trial() {
+					Collection<Integer> c;
+
+					public void setUp () {
+						c = impl.make(keys);
+					}
+
+					public long run () {
+						c.retainAll(values);
+						return keys.length;
+					}
+				};
+			}
+		},
+		/**
+		 * Half lookups, a quarter inserts and a quarter deletes, of the probe keys
+		 */
+		MIXED {
+			@Override
+			Trial prepare (Implementation impl, int[] keys, int[] probes) {
+				return new Trial() {
+					Collection<Integer> c;
+
+					public void setUp () {
+						c = impl.make(keys);
+					}
+
+					public long run () {
+						int found = 0;
+						for (int i = 0; i < probes.length; i++) {
+							switch (i & 3) {
+								case 0, 1 -> found += c.contains(probes[i]) ? 1 : 0;
+								case 2 -> c.add(probes[i]);
+								case 3 -> c.remove(probes[i - 1]);
+							}
+						}
+						sink += found;
+						return probes.length;
+					}
+				};
+			}
+		};
+
+		/**
+		 * @param keys   The keys in the tree, in the order they are inserted
+		 * @param probes Keys from the same distribution, to look up and so on
+		 */
+		abstract Trial prepare (Implementation impl, int[] keys, int[] probes);
+	}
+
+	private static final long SEED = 42;
+
+	// Results go here so that the JIT can't skip the work that made them
+	private static volatile long sink;
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	// Big enough for the recursion in trees that don't balance themselves, even when they are one long path
+	private static final long STACK_SIZE = 1L << 29;
+
+	private List<Implementation> trees = List.of(Implementation.values());
+	private List<Operation> operations = List.of(Operation.values());
+	private List<KeyDistribution> distributions = List.of(KeyDistribution.values());
+	private int[] sizes = {1000, 10000};
+	private int warmup = 2, iterations = 5;
+	private long iterationNanos = 200_000_000L;
+
+	public static void main (String[] args) throws InterruptedException {
+		var benchmark = new TreeBenchmark();
+		try {
+			benchmark.parseArgs(args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+
+		var thread = new Thread(null, benchmark::runAll, "Benchmark", STACK_SIZE);
+		thread.start();
+		thread.join();
+	}
+
+	private void parseArgs (String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value after " + args[i]);
+			String value = args[++i];
+			switch (args[i - 1]) {
+				case "--trees" -> trees = parseNames(value, Implementation.class);
+				case "--ops" -> operations = parseNames(value, Operation.class);
+				case "--keys" -> distributions = parseNames(value, KeyDistribution.class);
+				case "--sizes" -> sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+				case "--warmup" -> warmup = Integer.parseInt(value);
+				case "--iterations" -> iterations = Math.max(1, Integer.parseInt(value));
+				case "--time" -> iterationNanos = Long.parseLong(value) * 1_000_000L;
+				default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+			}
+		}
+	}
+
+	private static <E extends Enum<E>> List<E> parseNames (String names, Class<E> type) {
+		List<E> res = new ArrayList<>();
+		for (String name : names.split(",")) {
+			try {
+				res.add(Enum.valueOf(type, name.trim().toUpperCase().replace('-', '_')));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown " + type.getSimpleName() + " \"" + name + "\". Must be one of " + Arrays.toString(type.getEnumConstants()).toLowerCase());
+			}
+		}
+		return res;
+	}
+
+	private void runAll () {
+		System.out.printf("%-13s %-9s %-10s %8s %16s %12s %12s%n", "Benchmark", "Tree", "Keys", "Size", "ops/s", "± sd", "B/op");
+		for (var operation : operations)
+			for (var distribution : distributions)
+				for (int size : sizes)
+					for (var tree : trees)
+						runOne(operation, tree, distribution, size);
+	}
+
+	private void runOne (Operation operation, Implementation tree, KeyDistribution distribution, int size) {
+		System.out.printf("%-13s %-9s %-10s %8d ", operation.name().toLowerCase(), tree.name().toLowerCase(), distribution.name().toLowerCase(), size);
+		System.out.flush();
+
+		try {
+			var trial = operation.prepare(tree, distribution.generate(size, SEED), distribution.generate(size, SEED + 1));
+			for (int i = 0; i < warmup; i++) iterate(trial);
+
+			double[] throughput = new double[iterations];
+			long ops = 0, allocated = 0;
+			for (int i = 0; i < iterations; i++) {
+				var result = iterate(trial);
+				throughput[i] = result[0] / (result[1] / 1e9);
+				ops += result[0];
+				allocated += result[2];
+			}
+
+			double mean = Arrays.stream(throughput).average().orElse(0);
+			double sd = Math.sqrt(Arrays.stream(throughput).map(t -> (t - mean) * (t - mean)).sum() / Math.max(1, iterations - 1));
+			System.out.printf("%16.1f %12.1f %12.1f%n", mean, sd, allocated / (double) Math.max(1, ops));
+		} catch (Throwable e) {
+			// Trees that crash or run out of stack on some inputs shouldn't stop the rest
+			System.out.println("failed: " + e);
+		}
+	}
+
+	/**
+	 * Runs the trial for at least one iteration's time
+	 *
+	 * @return The number of operations, the ns they took and the bytes they allocated
+	 */
+	private long[] iterate (Trial trial) {
+		long ops = 0, elapsed = 0, allocated = 0;
+		do {
+			trial.setUp();
+			long allocatedBefore = threads.getCurrentThreadAllocatedBytes(), start = System.nanoTime();
+			ops += trial.run();
+			elapsed += System.nanoTime() - start;
+			allocated += threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+		} while (elapsed < iterationNanos);
+		return new long[] { ops, elapsed, allocated };
+	}
+
+	private static List<Integer> toList (int[] a) {
+		List<Integer> res = new ArrayList<>(a.length);
+		for (int x : a) res.add(x);
+		return res;
+	}
+}
@@ -0,0 +1,90 @@
+package bench;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+
+/**
+ * A sorted collection that keeps duplicates, like the trees do, as a {@link TreeMap} from each value to how many times
+ * it was added. The baseline for {@link TreeBenchmark}, since a {@link TreeSet} would drop repeated keys and so do less
+ * work and hold fewer values than the trees it is compared with
+ */
+public class TreeMultiset <T extends Comparable<T>> extends AbstractCollection<T> {
+	// Each count is a one-element array, so that it can be changed in place through a lookup by any Object
+	private final TreeMap<T, int[]> counts = new TreeMap<>();
+	private int size = 0;
+
+	@Override
+	public boolean add (T value) {
+		counts.computeIfAbsent(value, v -> new int[1])[0]++;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes one copy of the value
+	 */
+	@Override
+	public boolean remove (Object value) {
+		int[] count = counts.get(value);
+		if (count == null) return false;
+		if (--count[0] == 0) counts.remove(value);
+		size--;
+		return true;
+	}
+
+	@Override
+	public boolean contains (Object value) {
+		return counts.containsKey(value);
+	}
+
+	@Override
+	public int size () {
+		return size;
+	}
+
+	@Override
+	public void clear () {
+		counts.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return The values in order, with each repeated as many times as it was added
+	 */
+	@Override
+	public @NotNull Iterator<T> iterator () {
+		return new Iterator<>() {
+			private final Iterator<Map.Entry<T, int[]>> entries = counts.entrySet().iterator();
+			private Map.Entry<T, int[]> entry = null;
+			// Copies of the current entry's value still to be returned
+			private int remaining = 0;
+			private boolean canRemove = false;
+
+			@Override
+			public boolean hasNext () {
+				return remaining > 0 || entries.hasNext();
+			}
+
+			@Override
+			public T next () {
+				if (remaining == 0) {
+					entry = entries.next();
+					remaining = entry.getValue()[0];
+				}
+				remaining--;
+				canRemove = true;
+				return entry.getKey();
+			}
+
+			@Override
+			public void remove () {
+				if (!canRemove) throw new IllegalStateException();
+				canRemove = false;
+				// The entry iterator hasn't moved past the entry, so it can still remove it
+				if (--entry.getValue()[0] == 0) entries.remove();
+				size--;
+			}
+		};
+	}
+}
@@ -0,0 +1,197 @@
+package bench;
+
+import tree.AbstractBST;
+import values.NumberOrString;
+
+import java.util.*;
+
+/**
+ * A generated sequence of inserts and deletes, made straight into {@link NumberOrString}s so that nothing is formatted
+ * or parsed along the way. Apply it to a tree with {@link #run}
+ */
+public class Workload {
+	public enum Kind {
+		/**
+		 * Ints in [0, 4 * count), all equally likely
+		 */
+		UNIFORM("uniform"),
+		/**
+		 * Ascending runs of param ints, each starting somewhere random. The whole workload is one run if param is 0
+		 */
+		SORTED("sorted"),
+		/**
+		 * count - 1 down to 0
+		 */
+		REVERSE("reverse"),
+		/**
+		 * Ints in [0, count) where a few come up most of the time. See {@link KeyDistribution#ZIPF}
+		 */
+		ZIPF("zipf"),
+		/**
+		 * Ints bunched normally around a few random centers. See {@link KeyDistribution#CLUSTERED}
+		 */
+		CLUSTERS("clusters"),
+		/**
+		 * Uniform ints, where every other operation deletes a random value inserted earlier and still in the tree
+		 */
+		CHURN("churn"),
+		/**
+		 * Random lowercase strings of param letters, or 8 if param is 0
+		 */
+		STRINGS("strings");
+
+		public final String name;
+
+		Kind (String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return The kind with that name, ignoring case, or null if there isn't one
+		 */
+		public static Kind named (String name) {
+			for (var kind : values()) if (kind.name.equalsIgnoreCase(name)) return kind;
+			return null;
+		}
+	}
+
+	private static final int DEFAULT_STRING_LENGTH = 8;
+
+	private final Kind kind;
+	private final NumberOrString[] values;
+
+	// Which of the values are deleted rather than inserted
+	private final BitSet deletes = new BitSet();
+
+	private Workload (Kind kind, int count) {
+		this.kind = kind;
+		this.values = new NumberOrString[count];
+	}
+
+	/**
+	 * @param count The number of operations
+	 * @param param Changes the shape of some kinds of workload. See {@link Kind}. 0 for the default
+	 */
+	public static Workload generate (Kind kind, int count, int param, long seed) {
+		var res = new Workload(kind, count);
+		var values = res.values;
+		Random random = new Random(seed);
+
+		switch (kind) {
+			case UNIFORM, ZIPF, CLUSTERS, REVERSE -> {
+				int[] keys = (switch (kind) {
+					case UNIFORM -> KeyDistribution.UNIFORM;
+					case ZIPF -> KeyDistribution.ZIPF;
+					case CLUSTERS -> KeyDistribution.CLUSTERED;
+					default -> KeyDistribution.REVERSE;
+				}).generate(count, seed);
+				for (int i = 0; i < count; i++) values[i] = new NumberOrString(keys[i]);
+			}
+			case SORTED -> {
+				int run = param > 0 ? param : Math.max(count, 1), start = 0;
+				for (int i = 0; i < count; i++) {
+					if (i % run == 0) start = random.nextInt(Math.max(1, count * 4)) - i;
+					values[i] = new NumberOrString(start + i);
+				}
+			}
+			case CHURN -> {
+				// Values inserted and not deleted yet, in no particular order
+				List<NumberOrString> live = new ArrayList<>();
+				for (int i = 0; i < count; i++) {
+					if (i % 2 == 1 && !live.isEmpty()) {
+						// Swap the chosen value to the end, so removing it is cheap
+						int j = random.nextInt(live.size());
+						values[i] = live.set(j, live.get(live.size() - 1));
+						live.remove(live.size() - 1);
+						res.deletes.set(i);
+					} else {
+						values[i] = new NumberOrString(random.nextInt(Math.max(1, count * 4)));
+						live.add(values[i]);
+					}
+				}
+			}
+			case STRINGS -> {
+				char[] chars = new char[param > 0 ? param : DEFAULT_STRING_LENGTH];
+				for (int i = 0; i < count; i++) {
+					for (int c = 0; c < chars.length; c++) chars[c] = (char) ('a' + random.nextInt(26));
+					values[i] = NumberOrString.ofString(new String(chars));
+				}
+			}
+		}
+		return res;
+	}
+
+	public Kind getKind () {
+		return kind;
+	}
+
+	public int size () {
+		return values.length;
+	}
+
+	/**
+	 * Applies every operation to the tree, with tracing turned off while it runs
+	 */
+	public Result run (AbstractBST<NumberOrString, ?> bst) {
+		boolean tracing = bst.isTracing();
+		bst.setTracing(false);
+
+		long rotations = bst.getRotationCount();
+		long start = System.nanoTime();
+		try {
+			for (int i = 0; i < values.length; i++) {
+				if (deletes.get(i)) bst.remove(values[i]);
+				else bst.add(values[i]);
+			}
+		} finally {
+			bst.setTracing(tracing);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		return new Result(
+			this, bst.getClass().getSimpleName(), values.length - deletes.cardinality(), deletes.cardinality(), elapsed,
+			bst.size(), bst.getHeight(), bst.getRotationCount() - rotations
+		);
+	}
+
+	/**
+	 * What happened when a workload was run
+	 */
+	public static class Result {
+		public final Workload workload;
+		public final String treeType;
+		public final int inserts, deletes, size, height;
+		public final long elapsedNanos, rotations;
+
+		Result (Workload workload, String treeType, int inserts, int deletes, long elapsedNanos, int size, int height, long rotations) {
+			this.workload = workload;
+			this.treeType = treeType;
+			this.inserts = inserts;
+			this.deletes = deletes;
+			this.elapsedNanos = elapsedNanos;
+			this.size = size;
+			this.height = height;
+			this.rotations = rotations;
+		}
+
+		public double getOpsPerSecond () {
+			return (inserts + deletes) / Math.max(elapsedNanos / 1e9, 1e-9);
+		}
+
+		/**
+		 * @return The height of a perfectly balanced tree of the same size
+		 */
+		public int getOptimalHeight () {
+			return size == 0 ? -1 : 31 - Integer.numberOfLeadingZeros(size);
+		}
+
+		@Override
+		public String toString () {
+			return String.format(
+				"Ran %d inserts and %d deletes of %s keys on %s in %.3f ms: %.0f ops/sec. Size %d, height %d (optimal %d, %.2fx), %d rotations",
+				inserts, deletes, workload.kind.name, treeType, elapsedNanos / 1e6, getOpsPerSecond(),
+				size, height, getOptimalHeight(), height / (double) Math.max(getOptimalHeight(), 1), rotations
+			);
+		}
+	}
+}
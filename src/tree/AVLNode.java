@@ -1,6 +1,9 @@
 package tree;
 
 public class AVLNode<T extends Comparable<T>> extends BSTNode<T> {
+    // Marks shown after the value for balance factors -2 to 2
+    private static final String[] BALANCE_MARKS = "⁻²,⁻,,⁺,⁺²".split(",", -1);
+
     public AVLNode(T value) {
         super(value);
     }
@@ -46,6 +49,6 @@ public class AVLNode<T extends Comparable<T>> extends BSTNode<T> {
 
     @Override
     public String toString() {
-         return super.toString() + "⁻²,⁻,,⁺,⁺²".split(",")[getBalanceFactor() + 2];
+         return super.toString() + BALANCE_MARKS[getBalanceFactor() + 2];
     }
 }
\ No newline at end of file
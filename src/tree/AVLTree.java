@@ -1,5 +1,7 @@
 package tree;
 
+import java.util.*;
+
 public class AVLTree<T extends Comparable<T>> extends BalancedBST<T, AVLNode<T>> {
     @Override
     protected void fixInsert (AVLNode<T> node) {
@@ -10,6 +12,7 @@ public class AVLTree<T extends Comparable<T>> extends BalancedBST<T, AVLNode<T>>
         AVLNode<T> res;
 
         if(g.isUnbalanced()){
+            stats.count(TreeStats.Counter.AVL_REBALANCE);
             var p = g.isLeftHeavy() ? g.getLeftChild() : g.getRightChild();
             if(p.isLeftHeavy()){
                 res = rotate(p.getLeftChild());
@@ -30,7 +33,29 @@ public class AVLTree<T extends Comparable<T>> extends BalancedBST<T, AVLNode<T>>
     protected void deleteSimple(AVLNode<T> target) {
         var node = target.getParent();
         super.deleteSimple(target);
-        fixInsert(node);
+        // Nothing above a deleted root to rebalance
+        if (node != null) fixInsert(node);
+    }
+
+    /**
+     * Also checks that the heights of the two subtrees of every node differ by at most one
+     */
+    @Override
+    protected void checkInvariants (List<String> problems) {
+        super.checkInvariants(problems);
+        getCheckedHeight(root, problems);
+    }
+
+    /**
+     * @return The height of the node, adding a problem to the list if it is unbalanced. Works out every height in one
+     * pass, rather than once for each node like {@link AVLNode#getBalanceFactor()}
+     */
+    private int getCheckedHeight (AVLNode<T> node, List<String> problems) {
+        if (node == null) return -1;
+
+        int left = getCheckedHeight(node.getLeftChild(), problems), right = getCheckedHeight(node.getRightChild(), problems);
+        if (Math.abs(left - right) > 1) problems.add("Node " + node + " has balance factor " + (left - right));
+        return 1 + Math.max(left, right);
     }
 
     @Override
@@ -2,6 +2,7 @@ package tree;
 
 import org.jetbrains.annotations.*;
 import util.ANSICode;
+import util.ConsoleWriter;
 import util.Log;
 
 import java.util.*;
@@ -9,6 +10,51 @@ import java.util.*;
 public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode<T>> implements Collection<T> {
     protected Node root = null;
 
+    /**
+     * Whether the tree logs each step of its operations and prints itself to the console after each change
+     */
+    protected boolean tracing = true;
+
+    /**
+     * Incremented every time the tree is changed, so that readers can tell when anything they derived from it is stale
+     */
+    private volatile long modCount = 0;
+
+    /**
+     * Counts the work the tree does. Off until turned on with {@link #setCounting}
+     */
+    protected final TreeStats stats = new TreeStats();
+
+    /**
+     * How long each public operation has taken
+     */
+    protected final OperationLatency latency = new OperationLatency();
+
+    /**
+     * The number of nodes in the tree, kept up to date so that it can be read without counting them
+     */
+    private int size = 0;
+
+    /**
+     * The number of rotations done so far. Used to tell how many rotations an operation did
+     */
+    protected long rotations = 0;
+
+    /**
+     * The node made by the insert that is running, so that its depth can be found without looking it up again
+     */
+    private Node inserted;
+
+    /**
+     * Whether lookups count visits to each node they pass through. See {@link #setHeatTracking}
+     */
+    private boolean heatTracking = false;
+
+    // Node heat halves after this many lookups
+    private static final int HEAT_HALF_LIFE = 1 << 12;
+    private int heatEpoch = 0, lookupsThisEpoch = 0;
+    private volatile long lookups = 0;
+
     /**
      * Constructs a {@link Node} to use in the tree. This should be overridden by subclasses to return the right kind of
      * BSTNode to use in the tree
@@ -16,6 +62,14 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      */
     protected abstract Node constructNode(T value);
 
+    /**
+     * Constructs the node for a value being inserted. Inserts should use this rather than {@link #constructNode}, so
+     * that the tree knows which node is new
+     */
+    protected final Node constructInsertedNode (T value) {
+        return inserted = constructNode(value);
+    }
+
     /**
      * Constructs a {@link AbstractBST} with the same value type and node type as this tree. Used in algorithms
      */
@@ -30,8 +84,8 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
     protected synchronized void insertAsRoot (T value){
         assert root == null : "Tried to insert into non-null root";
 
-        root = constructNode(value);
-        printTreeToConsole();
+        root = constructInsertedNode(value);
+        traceTree();
     }
     /**
      * @param parent The root node to insert under
@@ -39,23 +93,25 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      * @return whether the tree changed as a result of this call
      */
     protected synchronized boolean add (Node parent, T value) {
+        stats.count(TreeStats.Counter.VISIT);
+        stats.count(TreeStats.Counter.COMPARISON);
         int compare = value.compareTo(parent.getValue());
 
         if (compare < 0) {
             if (parent.hasLeftChild()) {
                 add((Node) parent.getLeftChild(), value);
             } else {
-                System.out.println("Inserting " + value + " as left child of " + parent);
-                parent.setLeftChild(constructNode(value));
-                printTreeToConsole();
+                if (tracing) Log.log("Inserting " + value + " as left child of " + parent, Log.NO_DISPLAY);
+                parent.setLeftChild(constructInsertedNode(value));
+                traceTree();
             }
         } else {
             if (parent.hasRightChild()) {
                 add((Node) parent.getRightChild(), value);
             } else {
-                System.out.println("Inserting " + value + " as right child of " + parent);
-                parent.setRightChild(constructNode(value));
-                printTreeToConsole();
+                if (tracing) Log.log("Inserting " + value + " as right child of " + parent, Log.NO_DISPLAY);
+                parent.setRightChild(constructInsertedNode(value));
+                traceTree();
             }
         }
 
@@ -68,8 +124,14 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      * @throws ClassCastException when value is not a {@link Comparable}
      */
     public final synchronized boolean contains (Object value) {
-        if (!(value instanceof Comparable<?>)) throw new ClassCastException();
-        return find((T) value) != null;
+        long start = System.nanoTime();
+        try {
+            if (!(value instanceof Comparable<?>)) throw new ClassCastException();
+            stats.count(TreeStats.Counter.LOOKUP);
+            return find((T) value) != null;
+        } finally {
+            latency.stop(OperationLatency.Operation.CONTAINS, start);
+        }
     }
 
     /**
@@ -86,11 +148,33 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      * @return whether the tree changed as a result of this call
      */
     public final synchronized boolean add (T value) {
-        if (root == null) {
-            System.out.println("Inserting " + value + " as root");
-            insertAsRoot(value);
+        long start = System.nanoTime();
+        var event = new TreeEvents.Insert();
+        event.begin();
+        long rotationsBefore = rotations;
+        try {
+            modCount++;
+            stats.count(TreeStats.Counter.INSERT);
+            if (root == null) {
+                if (tracing) Log.log("Inserting " + value + " as root", Log.NO_DISPLAY);
+                insertAsRoot(value);
+            } else add(root, value);
+            size++;
+
+            if (event.shouldCommit()) {
+                event.treeType = getClass().getSimpleName();
+                event.value = String.valueOf(value);
+                event.treeSize = size;
+                // Walk up from the new node, since rotations may have moved it
+                event.depth = TreeEvents.getDepth(inserted);
+                event.rotations = (int) (rotations - rotationsBefore);
+                event.commit();
+            }
             return true;
-        } else return add(root, value);
+        } finally {
+            inserted = null;
+            latency.stop(OperationLatency.Operation.ADD, start);
+        }
     }
 
     /**
@@ -123,44 +207,85 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
         // Oh well.
         // </rant>
 
-        if (!(value instanceof Comparable<?>)) return false;    // Can't remove a value that isn't of the right type
+        long start = System.nanoTime();
+        var event = new TreeEvents.Delete();
+        event.begin();
+        long rotationsBefore = rotations;
+        try {
+            if (!(value instanceof Comparable<?>)) return false;    // Can't remove a value that isn't of the right type
 
-        // Find the node to be deleted
-        var target = find((T) value);
+            stats.count(TreeStats.Counter.REMOVE);
 
-        // If target not exist in the tree don't do anything
-        if (target == null) return false;
+            // Find the node to be deleted
+            var target = find((T) value);
+            int depth = event.isEnabled() ? TreeEvents.getDepth(target) : -1;
 
-        if (target == root && target.isLeaf()) {
-            root = null;
-        }
-        else if (target.getDegree() == 2) {  // If deg 2, must first find inorder successor n and swap
-            // The node to swap with (the inorder successor).
-            // Guaranteed to exist because target must have a right child to be deg 2
-            var swap = (Node) target.getInorderSuccessor();
+            // If target not exist in the tree don't do anything
+            if (target == null) {
+                commitDelete(event, value, false, depth, rotationsBefore);
+                return false;
+            }
 
-            // Swap the values of the nodes (but not any other information)
-            BSTNode.swapValues(target, swap);
+            modCount++;
+            size--;
+            if (target == root && target.isLeaf()) {
+                root = null;
+            }
+            else if (target.getDegree() == 2) {  // If deg 2, must first find inorder successor n and swap
+                // The node to swap with (the inorder successor).
+                // Guaranteed to exist because target must have a right child to be deg 2
+                var swap = findSuccessor(target);
+
+                // Swap the values of the nodes (but not any other information)
+                BSTNode.swapValues(target, swap);
 
-            deleteSimple(swap);
+                deleteSimple(swap);
+            }
+            else deleteSimple(target);
+
+            commitDelete(event, value, true, depth, rotationsBefore);
+            return true;
+        } finally {
+            latency.stop(OperationLatency.Operation.REMOVE, start);
         }
-        else deleteSimple(target);
+    }
 
-        return true;
+    /**
+     * @return The inorder successor of a node with a right child, counting a visit to each node on the way down
+     */
+    private Node findSuccessor (Node target) {
+        var n = (Node) target.getRightChild();
+        stats.count(TreeStats.Counter.VISIT);
+        while (n.hasLeftChild()) {
+            n = (Node) n.getLeftChild();
+            stats.count(TreeStats.Counter.VISIT);
+        }
+        return n;
+    }
+
+    private void commitDelete (TreeEvents.Delete event, Object value, boolean found, int depth, long rotationsBefore) {
+        if (!event.shouldCommit()) return;
+        event.treeType = getClass().getSimpleName();
+        event.value = String.valueOf(value);
+        event.found = found;
+        event.treeSize = size;
+        event.depth = depth;
+        event.rotations = (int) (rotations - rotationsBefore);
+        event.commit();
     }
 
     protected void deleteSimple (Node target) {
-        Log.log("Removing " + target + (
+        if (tracing) Log.log("Removing " + target + (
             target.hasParent()
                 ? " (parent is " + target.getParent() + ")"
                 : " (root)"
         ));
-        printTreeToConsole();
+        traceTree();
         var node = target.hasLeftChild() ? target.getLeftChild() : target.hasRightChild() ? target.getRightChild() : null;
         switch (target.getChildType()) {
             case LEFT -> target.getParent().setLeftChild(node);
             case RIGHT -> target.getParent().setRightChild(node);
-            case ROOT -> root = (Node)target.getLeftChild().makeRoot();
+            case ROOT -> root = (Node) node.makeRoot();
         }
     }
 
@@ -178,16 +303,22 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      */
     @Contract(pure = true)
     public final @NotNull AbstractBST<T, Node> intersection (@NotNull Collection<?> c){
-        AbstractBST<T, Node> res = makeEmptyTree();
-        c.stream()
-                .filter(this::contains) // Filter out the elements that are not in this tree
-                .map(i -> (T) i)    // Cast the elements to type T (to Comparable, after erasure)
-                .map(this::find)    // Get the actual element in the tree
-                .filter(Objects::nonNull)
-                .map(BSTNode::getValue)
-                .forEach(res::add);
-
-        return res;
+        long start = System.nanoTime();
+        try {
+            AbstractBST<T, Node> res = makeEmptyTree();
+            res.setTracing(tracing);
+            c.stream()
+                    .filter(this::contains) // Filter out the elements that are not in this tree
+                    .map(i -> (T) i)    // Cast the elements to type T (to Comparable, after erasure)
+                    .map(this::find)    // Get the actual element in the tree
+                    .filter(Objects::nonNull)
+                    .map(BSTNode::getValue)
+                    .forEach(res::add);
+
+            return res;
+        } finally {
+            latency.stop(OperationLatency.Operation.INTERSECTION, start);
+        }
     }
 
     /**
@@ -196,10 +327,17 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      */
     @Override
     public final synchronized boolean retainAll (@NotNull Collection<?> c) {
-        var temp = intersection(c);
-        boolean res = !new ArrayList<>(this).equals(new ArrayList<>(temp)); // This operation should be O(N) I think
-        root = temp.getRoot();  // Just copy the temp tree to this tree
-        return res;
+        long start = System.nanoTime();
+        try {
+            var temp = intersection(c);
+            modCount++;
+            boolean res = !new ArrayList<>(this).equals(new ArrayList<>(temp)); // This operation should be O(N) I think
+            root = temp.getRoot();  // Just copy the temp tree to this tree
+            size = temp.size;
+            return res;
+        } finally {
+            latency.stop(OperationLatency.Operation.RETAIN_ALL, start);
+        }
     }
 
     /**
@@ -207,7 +345,17 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      */
     @Override
     public final synchronized void clear () {
+        modCount++;
         root = null;
+        size = 0;
+    }
+
+    /**
+     * @return A number that changes every time the tree is changed
+     */
+    @Contract(pure = true)
+    public final long getModCount () {
+        return modCount;
     }
 
     /**
@@ -216,6 +364,13 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
      */
     @Contract(pure = true)
     protected final @Nullable Node find (T value) {
+        if (heatTracking) {
+            lookups++;
+            if (++lookupsThisEpoch >= HEAT_HALF_LIFE) {
+                lookupsThisEpoch = 0;
+                heatEpoch++;
+            }
+        }
         return find(root, value);
     }
 
@@ -228,6 +383,9 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
     protected final @Nullable Node find (Node node, T value) {
         if (node == null) return null;
 
+        stats.count(TreeStats.Counter.VISIT);
+        stats.count(TreeStats.Counter.COMPARISON);
+        if (heatTracking) node.touch(heatEpoch);
         int compare = value.compareTo(node.getValue());
 
         if (compare < 0)
@@ -240,12 +398,26 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
     @Override
     @Contract(pure = true)
     public final int size () {
-        return countNodes(root);
+        return size;
     }
 
+    /**
+     * Counts the nodes in a subtree without recursion, so it works on trees of any height
+     */
     @Contract(pure = true)
-    protected final int countNodes (BSTNode<T> node) {
-        return node == null ? 0 : 1 + countNodes(node.getLeftChild()) + countNodes(node.getRightChild());
+    public static <T extends Comparable<T>> int countNodes (BSTNode<T> node) {
+        if (node == null) return 0;
+
+        final Deque<BSTNode<T>> stack = new ArrayDeque<>();
+        stack.push(node);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            var n = stack.pop();
+            count++;
+            if (n.hasLeftChild()) stack.push(n.getLeftChild());
+            if (n.hasRightChild()) stack.push(n.getRightChild());
+        }
+        return count;
     }
 
     /**
@@ -397,9 +569,16 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
     }
 
     public final BSTNode<T>[][] getNodesAtLevels() {
+        return getNodesAtLevels(root);
+    }
+
+    /**
+     * @return The nodes of the tree under root by level, in heap order. Missing nodes are null
+     */
+    public static <T extends Comparable<T>> BSTNode<T>[][] getNodesAtLevels (BSTNode<T> root) {
         if (root == null) return (BSTNode<T>[][]) new BSTNode[][] { };
 
-        final int levels = countLevels();
+        final int levels = BSTNode.getHeight(root) + 1;
         final BSTNode<T>[][] res = new BSTNode[levels][];
         res[0] = new BSTNode[] { root };
 
@@ -423,66 +602,250 @@ public abstract class AbstractBST <T extends Comparable<T>, Node extends BSTNode
         return Arrays.stream(getLevels()).mapToInt(i -> (int) Arrays.stream(i).filter(Objects::nonNull).count()).toArray();
     }
 
+    /**
+     * @param tracing Whether the tree should log each step of its operations. Turn this off when speed matters
+     */
+    public final void setTracing (boolean tracing) {
+        this.tracing = tracing;
+    }
+
+    @Contract(pure = true)
+    public final boolean isTracing () {
+        return tracing;
+    }
+
+    /**
+     * @param counting Whether the tree should count the comparisons, rotations and so on that its operations take.
+     *                 Turning it off keeps the counts so far
+     */
+    public final void setCounting (boolean counting) {
+        stats.setEnabled(counting);
+    }
+
+    /**
+     * @return The work the tree has counted. See {@link #setCounting}
+     */
+    @Contract(pure = true)
+    public final TreeStats getStats () {
+        return stats;
+    }
+
+    /**
+     * @param heatTracking Whether lookups (through {@link #contains} and {@link #remove}) should count a visit to each
+     *                     node they pass through, so that the busy parts of the tree can be shown. Visits count for less
+     *                     the older they are. Turning it off keeps the heat so far
+     */
+    public final void setHeatTracking (boolean heatTracking) {
+        this.heatTracking = heatTracking;
+    }
+
+    @Contract(pure = true)
+    public final boolean isHeatTracking () {
+        return heatTracking;
+    }
+
+    /**
+     * Forgets every visit counted so far
+     */
+    public final synchronized void resetHeat () {
+        if (root != null) {
+            final Deque<BSTNode<T>> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                var n = stack.pop();
+                n.clearHeat();
+                if (n.hasLeftChild()) stack.push(n.getLeftChild());
+                if (n.hasRightChild()) stack.push(n.getRightChild());
+            }
+        }
+        lookupsThisEpoch = 0;
+        lookups++;
+    }
+
+    /**
+     * @return The tree's current heat epoch, to pass to {@link BSTNode#getHeat}. Heat halves every epoch
+     */
+    @Contract(pure = true)
+    public final synchronized int getHeatEpoch () {
+        return heatEpoch;
+    }
+
+    /**
+     * @return A number that changes every time the heat of any node changes
+     */
+    @Contract(pure = true)
+    public final long getHeatVersion () {
+        return lookups;
+    }
+
+    /**
+     * Checks that the tree is a valid binary search tree of its kind. Meant for tests and stress runs, since it looks
+     * at every node
+     *
+     * @return A description of each problem found, or an empty list if there are none
+     */
+    public final synchronized List<String> checkInvariants () {
+        List<String> problems = new ArrayList<>();
+        checkInvariants(problems);
+        return problems;
+    }
+
+    /**
+     * Adds a description of each problem found to the list. Subclasses should extend this with the rules of their
+     * kind of tree. This checks the order of the values, the links between nodes and the size
+     */
+    protected void checkInvariants (List<String> problems) {
+        checkNodes(root, size, problems);
+    }
+
+    /**
+     * Checks the order of the values under root, the links between them, and that there are size of them
+     */
+    static <T extends Comparable<T>> void checkNodes (BSTNode<T> root, int size, List<String> problems) {
+        if (root != null && root.hasParent()) problems.add("Root " + root + " has parent " + root.getParent());
+
+        // Go through the tree in order without recursion, so that any shape of tree can be checked
+        final Deque<BSTNode<T>> stack = new ArrayDeque<>();
+        BSTNode<T> curr = root, prev = null;
+        int count = 0;
+        while (curr != null || !stack.isEmpty()) {
+            while (curr != null) {
+                checkParent(problems, curr.getLeftChild(), curr);
+                checkParent(problems, curr.getRightChild(), curr);
+                stack.push(curr);
+                curr = curr.getLeftChild();
+            }
+            curr = stack.pop();
+            if (prev != null && prev.getValue().compareTo(curr.getValue()) > 0)
+                problems.add(prev + " comes before " + curr + " in order");
+            count++;
+            prev = curr;
+            curr = curr.getRightChild();
+        }
+
+        if (count != size) problems.add("Tree has " + count + " nodes but its size is " + size);
+    }
+
+    private static void checkParent (List<String> problems, BSTNode<?> child, BSTNode<?> parent) {
+        if (child != null && child.getParent() != parent)
+            problems.add("Child " + child + " of " + parent + " has parent " + child.getParent());
+    }
+
+    /**
+     * @return The number of rotations the tree has done since it was made
+     */
+    @Contract(pure = true)
+    public final long getRotationCount () {
+        return rotations;
+    }
+
+    /**
+     * @return How long each operation on the tree has taken
+     */
+    @Contract(pure = true)
+    public final OperationLatency getLatency () {
+        return latency;
+    }
+
+    /**
+     * Prints the tree to the console if tracing is on
+     */
+    protected final void traceTree () {
+        if (tracing) printTreeToConsole();
+    }
+
+    /**
+     * How wide and deep trees printed to the console can get before being cut off
+     */
+    private int consoleWidth = 160, consoleDepth = 32;
+
+    public void setConsoleLimits (int maxWidth, int maxDepth) {
+        consoleWidth = maxWidth;
+        consoleDepth = maxDepth;
+    }
+
     public void printTreeToConsole() {
+        // Let earlier log messages reach the terminal first
+        Log.flush();
+        var out = new ConsoleWriter(System.out, consoleWidth);
+        printTreeToConsole(out, consoleDepth);
+        out.flush();
+    }
+
+    /**
+     * Prints the tree sideways, one node per line, with the left child above the right child. A missing child is
+     * shown as [-] when its sibling is there. Subtrees below maxDepth are replaced by the number of nodes in them.
+     * Takes time linear in the number of nodes, and memory linear in the height of the tree
+     */
+    public synchronized void printTreeToConsole(ConsoleWriter out, int maxDepth) {
         if (isEmpty()) {
-            System.out.println(ANSICode.WHITE + "[Empty Tree]" + ANSICode.CLEAR);
+            out.write(ANSICode.WHITE).write("[Empty Tree]").write(ANSICode.CLEAR).newLine();
             return;
         }
 
-        final int height = countLevels();
-        final BSTNode<T>[][] levels = getNodesAtLevels();
-
-        final int[][] widths = new int[height][];
-        for (int r = height - 1; r >= 0; r--) {
-            widths[r] = new int[levels[r].length];
-
-            for (int i = 0; i < levels[r].length; i++) {
-                if (levels[r][i] == null) {
-                    if (levels[r][i ^ 1] != null) {
-                        for (int rr = r, ii = i; rr < height; rr++, ii *= 2) {
-                            widths[rr][ii] = 4;
-                        }
-                    }
-                } else {
-                    int w = levels[r][i].toString().length() + 3;
-                    int width = r == height - 1
-                            ? w
-                            : Math.max(w, widths[r + 1][i * 2] + widths[r + 1][i * 2 + 1]);
-                    widths[r][i] = width;
-
-                    if (!levels[r][i].hasRightChild() && !levels[r][i].hasLeftChild()) {
-                        for (int rr = r, ii = i; rr < height; rr++, ii *= 2) {
-                            widths[rr][ii] = width;
-                        }
-                    }
-                }
+        // The lines drawn to the left of the current node, 4 chars per level
+        final StringBuilder prefix = new StringBuilder();
+
+        // Nodes still to print. Since each node's children are pushed together and printed before anything under
+        // it, there is at most one node waiting per level
+        final Deque<ConsoleItem<T>> stack = new ArrayDeque<>();
+        stack.push(new ConsoleItem<>(root, 0, true));
+
+        while (!stack.isEmpty()) {
+            var item = stack.pop();
+
+            if (item.depth > 0) {
+                // Lines are cut off at the max width anyway, so never write more of the prefix than that. This keeps
+                // printing linear in the number of nodes even on very tall trees
+                prefix.setLength((item.depth - 1) * 4);
+                out.write(prefix, 0, Math.min(prefix.length(), out.getMaxWidth())).write(item.last ? "└── " : "├── ");
             }
-        }
 
-        for (int r = 0; r < height; r++) {
-            for (int i = 0; i < levels[r].length; i++) {
-                var node = levels[r][i];
-                int w = widths[r][i];
+            if (item.node == null) {
+                out.write(ANSICode.WHITE).write("[-]").write(ANSICode.CLEAR).newLine();
+                continue;
+            }
 
-                if (w == 0) continue;
+            var color = getConsoleColor(item.node);
+            out.write("[").write(color).write(ANSICode.BOLD).write(item.node.toString()).write(ANSICode.CLEAR).write("]");
 
-                if (node == null) {
-                    System.out.print(ANSICode.WHITE + "[");
-                    System.out.print("-".repeat(w - 3));
-                    System.out.print("] " + ANSICode.CLEAR);
-                } else {
-                    _printNode(node, w);
-                }
+            var left = item.node.getLeftChild();
+            var right = item.node.getRightChild();
+            if (left == null && right == null) {
+                out.newLine();
+                continue;
+            }
+            if (item.depth >= maxDepth) {
+                out.write(ANSICode.WHITE).write(" … " + (countNodes(left) + countNodes(right)) + " more").write(ANSICode.CLEAR).newLine();
+                continue;
             }
-            System.out.println();
+            out.newLine();
+
+            if (item.depth > 0) prefix.append(item.last ? "    " : "│   ");
+            stack.push(new ConsoleItem<>(right, item.depth + 1, true));
+            stack.push(new ConsoleItem<>(left, item.depth + 1, false));
         }
     }
-    protected void _printNode(BSTNode<T> node, int targetWidth){
-        String s = node.toString();
-        int space = targetWidth - 3 - s.length();
-        String l = " ".repeat(space / 2);
-        String r = " ".repeat(space - space / 2);
 
-        System.out.print("[" + ANSICode.BOLD + l + s + r + ANSICode.CLEAR + "] ");
+    /**
+     * Should be overridden by subclasses to color their nodes in the console
+     */
+    protected ANSICode getConsoleColor(BSTNode<T> node) {
+        return ANSICode.CLEAR;
+    }
+
+    private static class ConsoleItem<T extends Comparable<T>> {
+        // Null for a missing child
+        final BSTNode<T> node;
+        final int depth;
+
+        // Whether this is the last child of its parent
+        final boolean last;
+
+        ConsoleItem(BSTNode<T> node, int depth, boolean last) {
+            this.node = node;
+            this.depth = depth;
+            this.last = last;
+        }
     }
 }
\ No newline at end of file
@@ -4,6 +4,9 @@ public class BSTNode<T extends Comparable<T>> {
 	protected BSTNode<T> left = null, right = null, parent = null;
 	protected T value;
 
+	// How often the node has been visited by lookups, halved for every epoch since heatEpoch. See AbstractBST#setHeatTracking
+	private int heat = 0, heatEpoch = 0;
+
 	public enum ChildType { LEFT, RIGHT, ROOT }
 
 	public BSTNode (T value) {
@@ -27,6 +30,36 @@ public class BSTNode<T extends Comparable<T>> {
 		return value;
 	}
 
+	/**
+	 * Counts a visit to the node
+	 *
+	 * @param epoch The tree's current heat epoch. Heat halves every epoch
+	 */
+	void touch (int epoch) {
+		heat = getHeat(epoch) + 1;
+		heatEpoch = epoch;
+	}
+
+	void clearHeat () {
+		heat = 0;
+	}
+
+	/**
+	 * @param epoch The tree's current heat epoch, from {@link AbstractBST#getHeatEpoch()}
+	 * @return How often the node has been visited recently, with older visits counting for less
+	 */
+	public int getHeat (int epoch) {
+		int age = epoch - heatEpoch;
+		return age <= 0 ? heat : age >= Integer.SIZE ? 0 : heat >>> age;
+	}
+
+	/**
+	 * @return The heat epoch of the tree when the node was last visited
+	 */
+	public int getHeatEpoch () {
+		return heatEpoch;
+	}
+
 	/**
 	 * @return The number of edges from this node to the lowest child node
 	 */
@@ -102,7 +102,12 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
      * @return The new grandparent
      */
     protected Node LL_Rotate(Node p) {
+        stats.count(TreeStats.Counter.LL_ROTATION);
+        rotations++;
+        var event = new TreeEvents.Rotation();
+        event.begin();
         LL_Rotate(p, (Node) p.getParent());
+        commitRotation(event, "Left-Left", p);
         return p;
     }
 
@@ -113,7 +118,12 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
      * @return The new grandparent
      */
     protected Node RR_Rotate(Node p) {
+        stats.count(TreeStats.Counter.RR_ROTATION);
+        rotations++;
+        var event = new TreeEvents.Rotation();
+        event.begin();
         RR_Rotate(p, (Node) p.getParent());
+        commitRotation(event, "Right-Right", p);
         return p;
     }
 
@@ -124,12 +134,17 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
      * @return The new grandparent
      */
     protected Node LR_Rotate(Node p) {
+        stats.count(TreeStats.Counter.LR_ROTATION);
+        rotations++;
+        var event = new TreeEvents.Rotation();
+        event.begin();
         var x = (Node) p.getRightChild();
         var g = (Node) p.getParent();
 
         RR_Rotate(x, p);
         LL_Rotate(x, g);
 
+        commitRotation(event, "Left-Right", x);
         return x;
     }
 
@@ -140,15 +155,32 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
      * @return The new grandparent
      */
     protected Node RL_Rotate(Node p) {
+        stats.count(TreeStats.Counter.RL_ROTATION);
+        rotations++;
+        var event = new TreeEvents.Rotation();
+        event.begin();
         var x = (Node) p.getLeftChild();
         var g = (Node) p.getParent();
 
         LL_Rotate(x, p);
         RR_Rotate(x, g);
 
+        commitRotation(event, "Right-Left", x);
         return x;
     }
 
+    /**
+     * @param top The node at the top of the rotated subtree
+     */
+    private void commitRotation (TreeEvents.Rotation event, String kind, Node top) {
+        if (!event.shouldCommit()) return;
+        event.treeType = getClass().getSimpleName();
+        event.kind = kind;
+        event.treeSize = size();
+        event.depth = TreeEvents.getDepth(top);
+        event.commit();
+    }
+
     /**
      * Automatically performs the correct rotation based on x's role in the tree
      * @return the new grandparent node
@@ -157,20 +189,20 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
         var p = (Node) x.getParent();
         Node res;
         if (p.isLeftChild() && x.isLeftChild()) {
-            Log.log("Performing Left-Left Rotation with parent = " + p);
+            if (tracing) Log.log("Performing Left-Left Rotation with parent = " + p);
             res = LL_Rotate(p);
         } else if (p.isLeftChild() && x.isRightChild()) {
-            Log.log("Performing Left-Right Rotation with parent = " + p);
+            if (tracing) Log.log("Performing Left-Right Rotation with parent = " + p);
             res = LR_Rotate(p);
         } else if (p.isRightChild() && x.isRightChild()) {
-            Log.log("Performing Right-Right Rotation with parent = " + p);
+            if (tracing) Log.log("Performing Right-Right Rotation with parent = " + p);
             res = RR_Rotate(p);
         } else if (p.isRightChild() && x.isLeftChild()) {
-            Log.log("Performing Right-Left Rotation with parent = " + p);
+            if (tracing) Log.log("Performing Right-Left Rotation with parent = " + p);
             res = RL_Rotate(p);
         } else throw new Error("This should never happen");
 
-        printTreeToConsole();
+        traceTree();
         return res;
     }
 
@@ -181,14 +213,14 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
     protected Node OO_Rotate(Node p) {
         Node res;
         if (p.isLeftChild()) {
-            Log.log("Performing Left-Left Rotation with parent = " + p);
+            if (tracing) Log.log("Performing Left-Left Rotation with parent = " + p);
             res = LL_Rotate(p);
         } else if (p.isRightChild()) {
-            Log.log("Performing Right-Right Rotation with parent = " + p);
+            if (tracing) Log.log("Performing Right-Right Rotation with parent = " + p);
             res = RR_Rotate(p);
         } else throw new Error("This should never happen");
 
-        printTreeToConsole();
+        traceTree();
         return res;
     }
 
@@ -201,20 +233,20 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
         Node p = (Node) x.getParent();
         Node res;
         if (p.isLeftChild() && x.isLeftChild()) {
-            Log.log("Performing Left-Left Restructure with parent = " + p);
+            if (tracing) Log.log("Performing Left-Left Restructure with parent = " + p);
             res = LL_Rotate(p);
         } else if (p.isLeftChild() && x.isRightChild()) {
-            Log.log("Performing Left-Right Restructure with parent = " + p);
+            if (tracing) Log.log("Performing Left-Right Restructure with parent = " + p);
             res = LR_Rotate(p);
         } else if (p.isRightChild() && x.isRightChild()) {
-            Log.log("Performing Right-Right Restructure with parent = " + p);
+            if (tracing) Log.log("Performing Right-Right Restructure with parent = " + p);
             res = RR_Rotate(p);
         } else if (p.isRightChild() && x.isLeftChild()) {
-            Log.log("Performing Right-Left Restructure with parent = " + p);
+            if (tracing) Log.log("Performing Right-Left Restructure with parent = " + p);
             res = RL_Rotate(p);
         } else throw new Error("This should never happen");
 
-        printTreeToConsole();
+        traceTree();
         return res;
     }
 
@@ -231,26 +263,28 @@ public abstract class BalancedBST<T extends Comparable<T>, Node extends BSTNode<
      */
     @Override
     protected boolean add(Node parent, T value) {
+        stats.count(TreeStats.Counter.VISIT);
+        stats.count(TreeStats.Counter.COMPARISON);
         int compare = value.compareTo(parent.getValue());
 
         if (compare < 0) {
             if (parent.hasLeftChild()) {
                 add((Node) parent.getLeftChild(), value);
             } else {
-                Log.log("Inserting " + value + " as left child of " + parent);
-                var n = constructNode(value);
+                if (tracing) Log.log("Inserting " + value + " as left child of " + parent);
+                var n = constructInsertedNode(value);
                 parent.setLeftChild(n);
-                printTreeToConsole();
+                traceTree();
                 fixInsert(n);
             }
         } else {
             if (parent.hasRightChild()) {
                 add((Node) parent.getRightChild(), value);
             } else {
-                Log.log("Inserting " + value + " as right child of " + parent);
-                var n = constructNode(value);
+                if (tracing) Log.log("Inserting " + value + " as right child of " + parent);
+                var n = constructInsertedNode(value);
                 parent.setRightChild(n);
-                printTreeToConsole();
+                traceTree();
                 fixInsert(n);
             }
         }
@@ -0,0 +1,446 @@
+package tree;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A red-black tree that many threads can change at once. Each node has its own lock, and operations lock their way
+ * down from the root hand over hand, holding only the few nodes they could still need to change. Operations in
+ * different parts of the tree run in parallel once their paths split.
+ * <br>
+ * This works because both inserts and deletes fix the tree on the way down, never on the way back up:
+ * <ul>
+ *     <li>Inserts do the same color swap as {@link RBT#add}: a node with two red children becomes red and its children
+ *     black, rotated straight away if its parent is red. The new leaf then only ever needs a rotation close above
+ *     it. That takes the node, its parent, its grandparent and their parent, so 4 locks at most</li>
+ *     <li>Deletes push a red node down ahead of them, with color flips and rotations among the current node, its
+ *     parent, grandparent and sibling, so that the node finally removed is red and nothing above it needs fixing.
+ *     The node holding the value, whose value is replaced by its in-order predecessor, also stays locked</li>
+ * </ul>
+ * A node's children are only changed holding its lock, and its color only holding its parent's lock, so locks are
+ * only ever taken on children of locked nodes and threads can't deadlock.
+ * <br>
+ * Iterating, {@link #clear} and {@link #checkInvariants} wait for running operations to finish and briefly stop new ones
+ * starting, so they see the whole tree at one moment. Like the other trees, this holds duplicates
+ */
+public class ConcurrentRBT <T extends Comparable<T>> extends AbstractCollection<T> {
+    private static final class LockedNode <T extends Comparable<T>> extends RBTNode<T> {
+        final ReentrantLock lock = new ReentrantLock();
+
+        LockedNode (T value) {
+            super(value);
+        }
+
+        @Override
+        public LockedNode<T> getLeftChild () {
+            return (LockedNode<T>) super.getLeftChild();
+        }
+
+        @Override
+        public LockedNode<T> getRightChild () {
+            return (LockedNode<T>) super.getRightChild();
+        }
+    }
+
+    /**
+     * Above the root, with the root as its right child, so that the root is locked and replaced like any other node
+     */
+    private final LockedNode<T> header = new LockedNode<>(null);
+
+    private final LongAdder size = new LongAdder();
+
+    /**
+     * @return The child of node on the given side. The header only has a right child, the root
+     */
+    @Contract(pure = true)
+    private LockedNode<T> getChild (LockedNode<T> node, boolean right) {
+        if (node == header) return right ? header.getRightChild() : null;
+        return right ? node.getRightChild() : node.getLeftChild();
+    }
+
+    /**
+     * @return The side of node that the value belongs on. Equal values go right, like in the other trees
+     */
+    @Contract(pure = true)
+    private boolean isRightOf (LockedNode<T> node, T value) {
+        return node == header || value.compareTo(node.getValue()) >= 0;
+    }
+
+    private void setChild (LockedNode<T> node, boolean right, LockedNode<T> child) {
+        if (node == header) {
+            header.right = child;
+            if (child != null) child.makeRoot();
+        } else if (right) node.setRightChild(child);
+        else node.setLeftChild(child);
+    }
+
+    /**
+     * Rotates child into the place of its parent, which is a child of above. Only the three of them change, so only
+     * they need to be locked
+     */
+    private void rotateUp (LockedNode<T> above, LockedNode<T> parent, LockedNode<T> child) {
+        boolean parentRight = above == header || above.getRightChild() == parent;
+        if (parent.getRightChild() == child) {
+            parent.setRightChild(child.getLeftChild());
+            child.setLeftChild(parent);
+        } else {
+            parent.setLeftChild(child.getRightChild());
+            child.setRightChild(parent);
+        }
+        setChild(above, parentRight, child);
+    }
+
+    /**
+     * @return value as the type of the tree, for methods that take any Object. A value of some other type throws
+     * ClassCastException when it is compared, as it would in the other trees
+     */
+    @SuppressWarnings("unchecked")
+    private T asValue (Object value) {
+        return (T) value;
+    }
+
+    private static void unlock (LockedNode<?> node) {
+        if (node != null) node.lock.unlock();
+    }
+
+    @Override
+    public boolean contains (Object value) {
+        if (!(value instanceof Comparable<?>)) throw new ClassCastException();
+        T t = asValue(value);
+
+        header.lock.lock();
+        var node = header;
+        try {
+            while (true) {
+                var next = getChild(node, isRightOf(node, t));
+                if (next == null) return false;
+                next.lock.lock();
+                node.lock.unlock();
+                node = next;
+                if (t.compareTo(node.getValue()) == 0) return true;
+            }
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    /**
+     * @param value The value to insert into the tree
+     * @return true, since the tree holds duplicates
+     */
+    @Override
+    public boolean add (T value) {
+        Objects.requireNonNull(value);
+
+        // The bottom of the path down to the value. These are the only nodes locked
+        LockedNode<T> great = null, grand = null, parent = null, current = header;
+        header.lock.lock();
+        try {
+            while (true) {
+                boolean right = isRightOf(current, value), inserted = false;
+                var next = getChild(current, right);
+                if (next == null) {
+                    next = new LockedNode<>(value);
+                    next.lock.lock();
+                    setChild(current, right, next);
+                    inserted = true;
+                } else next.lock.lock();
+
+                unlock(great);
+                great = grand;
+                grand = parent;
+                parent = current;
+                current = next;
+
+                if (inserted || RBTNode.isRed(current.getLeftChild()) && RBTNode.isRed(current.getRightChild())) {
+                    // Color swap, which a new node is already the result of
+                    current.makeRed();
+                    RBTNode.makeBlack(current.getLeftChild());
+                    RBTNode.makeBlack(current.getRightChild());
+
+                    if (parent == header) current.makeBlack();
+                    else if (parent.isRed()) {
+                        // The parent is red so it isn't the root, and the grandparent is a real node
+                        if (great == null) throw new Error("This should never happen");
+                        grand.makeRed();
+                        if (isRightOf(grand, value) != isRightOf(parent, value)) {
+                            // Inside: current ends up on top, with parent and grand as its children
+                            rotateUp(grand, parent, current);
+                            rotateUp(great, grand, current);
+                            current.makeBlack();
+                            unlock(parent);
+                            unlock(grand);
+                            parent = great;
+                            grand = great = null;
+                        } else {
+                            // Outside: parent ends up on top, with current and grand as its children
+                            rotateUp(great, grand, parent);
+                            parent.makeBlack();
+                            unlock(grand);
+                            grand = great;
+                            great = null;
+                        }
+                    }
+                }
+
+                if (inserted) {
+                    size.increment();
+                    return true;
+                }
+            }
+        } finally {
+            unlock(great);
+            unlock(grand);
+            unlock(parent);
+            unlock(current);
+        }
+    }
+
+    /**
+     * @param value the value to erase from the tree
+     * @return whether a value was removed as a result of this call
+     */
+    @Override
+    public boolean remove (Object value) {
+        if (!(value instanceof Comparable<?>)) return false;    // Can't remove a value that isn't of the right type
+        T t = asValue(value);
+
+        // The node holding the value. Locked an extra time, so it stays locked when it leaves the path
+        LockedNode<T> found = null;
+        LockedNode<T> grand = null, parent = null, current = header;
+        boolean right = true;
+        header.lock.lock();
+        try {
+            LockedNode<T> next;
+            while ((next = getChild(current, right)) != null) {
+                boolean last = right;
+                next.lock.lock();
+                unlock(grand);
+                grand = parent;
+                parent = current;
+                current = next;
+
+                // Equal values go left, so that the path ends at the in-order predecessor of the value
+                int compare = current.getValue().compareTo(t);
+                right = compare < 0;
+                if (compare == 0) {
+                    unlock(found);
+                    found = current;
+                    found.lock.lock();
+                }
+
+                // Push a red node down, so that current is red before going further
+                if (current.isRed() || RBTNode.isRed(getChild(current, right))) continue;
+
+                var other = getChild(current, !right);
+                if (RBTNode.isRed(other)) {
+                    // Rotate the red child above current, which becomes red
+                    other.lock.lock();
+                    rotateUp(parent, current, other);
+                    current.makeRed();
+                    other.makeBlack();
+                    unlock(parent);
+                    parent = other;
+                    continue;
+                }
+
+                var sibling = getChild(parent, !last);
+                if (sibling == null) continue;
+                sibling.lock.lock();
+                if (!RBTNode.isRed(sibling.getLeftChild()) && !RBTNode.isRed(sibling.getRightChild())) {
+                    // Color flip
+                    parent.makeBlack();
+                    sibling.makeRed();
+                    current.makeRed();
+                    sibling.lock.unlock();
+                    continue;
+                }
+
+                LockedNode<T> top;
+                if (RBTNode.isRed(getChild(sibling, last))) {
+                    // Sibling's inside child ends up on top, with parent and sibling as its children
+                    top = getChild(sibling, last);
+                    top.lock.lock();
+                    rotateUp(parent, sibling, top);
+                    rotateUp(grand, parent, top);
+                    sibling.lock.unlock();
+                } else {
+                    // Sibling ends up on top, with parent and its red outside child as its children
+                    top = sibling;
+                    rotateUp(grand, parent, sibling);
+                }
+                current.makeRed();
+                // The root is always black, which is just as valid here
+                RBTNode.setColor(top, grand == header ? RBTNode.Color.BLACK : RBTNode.Color.RED);
+                RBTNode.makeBlack(top.getLeftChild());
+                RBTNode.makeBlack(top.getRightChild());
+                grand.lock.unlock();
+                grand = top;
+            }
+
+            if (found == null) return false;
+
+            // current is the predecessor of found, or found itself, and has at most one child
+            found.value = current.getValue();
+            setChild(parent, parent == header || parent.getRightChild() == current,
+                current.hasLeftChild() ? current.getLeftChild() : current.getRightChild());
+            size.decrement();
+            return true;
+        } finally {
+            unlock(found);
+            unlock(grand);
+            unlock(parent);
+            unlock(current);
+        }
+    }
+
+    @Override
+    @Contract(pure = true)
+    public int size () {
+        return (int) size.sum();
+    }
+
+    @Override
+    @Contract(pure = true)
+    public boolean isEmpty () {
+        return size.sum() == 0;
+    }
+
+    /**
+     * @return The values in order, as they were at one moment. Changes made while iterating don't show up
+     */
+    @Override
+    public @NotNull Iterator<T> iterator () {
+        List<T> values;
+        try {
+            values = lockAll();
+        } finally {
+            header.lock.unlock();
+        }
+
+        var it = values.iterator();
+        return new Iterator<>() {
+            private T last = null;
+
+            @Override
+            public boolean hasNext () {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next () {
+                return last = it.next();
+            }
+
+            @Override
+            public void remove () {
+                if (last == null) throw new IllegalStateException();
+                ConcurrentRBT.this.remove(last);
+                last = null;
+            }
+        };
+    }
+
+    /**
+     * Removes all items from the tree
+     */
+    @Override
+    public void clear () {
+        try {
+            size.add(-lockAll().size());
+            header.right = null;
+        } finally {
+            header.lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until no operation is running and stops new ones starting, by locking every node from the top down. Each
+     * node is let go once everything under it has been seen, since nothing can reach it again without getting past
+     * its parent. Must be followed by unlocking the header
+     *
+     * @return The values in order
+     */
+    private List<T> lockAll () {
+        header.lock.lock();
+        List<T> res = new ArrayList<>(size());
+        lockAll(header.getRightChild(), res);
+        return res;
+    }
+
+    private void lockAll (LockedNode<T> node, List<T> res) {
+        if (node == null) return;
+        node.lock.lock();
+        try {
+            lockAll(node.getLeftChild(), res);
+            res.add(node.getValue());
+            lockAll(node.getRightChild(), res);
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The smallest value, or null if there are none
+     */
+    public T getSmallest () {
+        return getEnd(false);
+    }
+
+    /**
+     * @return The largest value, or null if there are none
+     */
+    public T getLargest () {
+        return getEnd(true);
+    }
+
+    private T getEnd (boolean right) {
+        header.lock.lock();
+        var node = header;
+        try {
+            LockedNode<T> next = header.getRightChild();
+            while (next != null) {
+                next.lock.lock();
+                node.lock.unlock();
+                node = next;
+                next = getChild(node, right);
+            }
+            return node == header ? null : node.getValue();
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The number of edges from the root to the deepest leaf, as it was at one moment
+     */
+    public int getHeight () {
+        try {
+            lockAll();
+            return BSTNode.getHeight(header.getRightChild());
+        } finally {
+            header.lock.unlock();
+        }
+    }
+
+    /**
+     * Checks that the tree is a valid red-black tree, as it was at one moment
+     *
+     * @return A description of each problem found, or an empty list if there are none
+     */
+    public List<String> checkInvariants () {
+        List<String> problems = new ArrayList<>();
+        try {
+            lockAll();
+            if (header.hasLeftChild()) problems.add("Header has left child " + header.getLeftChild());
+            AbstractBST.checkNodes(header.getRightChild(), size(), problems);
+            RBT.checkColors(header.getRightChild(), problems);
+        } finally {
+            header.lock.unlock();
+        }
+        return problems;
+    }
+}
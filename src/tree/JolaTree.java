@@ -11,14 +11,19 @@ public class JolaTree<T extends Comparable<T>> extends BalancedBST<T, JolaNode<T
      */
     @Override
     protected boolean add(JolaNode<T> parent, T value) {
+        stats.count(TreeStats.Counter.VISIT);
+        stats.count(TreeStats.Counter.COMPARISON);
         int compare = value.compareTo(parent.getValue());
 
         if (compare < 0) {
             if (parent.hasLeftChild()) {
                 var leftChild = (JolaNode<T>) parent.getLeftChild();
+                stats.count(TreeStats.Counter.COMPARISON);
                 if(value.compareTo(leftChild.getValue()) >= 0) {
+                    // Looking ahead is the only visit to the child on this path, since the insert stops here
+                    stats.count(TreeStats.Counter.VISIT);
                     var temporaryInvoluntaryMigrant = leftChild.getRightChild();
-                    leftChild.setRightChild(constructNode(value));
+                    leftChild.setRightChild(constructInsertedNode(value));
                     LR_Rotate(leftChild);
                     leftChild.setRightChild(temporaryInvoluntaryMigrant);
                     fixInsert(leftChild);
@@ -28,18 +33,20 @@ public class JolaTree<T extends Comparable<T>> extends BalancedBST<T, JolaNode<T
                     fixInsert(parent);
                 }
             } else {
-                Log.log("Inserting " + value + " as left child of " + parent);
-                var n = constructNode(value);
+                if (tracing) Log.log("Inserting " + value + " as left child of " + parent);
+                var n = constructInsertedNode(value);
                 parent.setLeftChild(n);
-                printTreeToConsole();
+                traceTree();
                 fixInsert(parent);
             }
         } else {
             if (parent.hasRightChild()) {
                 var rightChild = (JolaNode<T>) parent.getRightChild();
+                stats.count(TreeStats.Counter.COMPARISON);
                 if(value.compareTo(rightChild.getValue()) < 0) {
+                    stats.count(TreeStats.Counter.VISIT);
                     var temporaryInvoluntaryMigrant = rightChild.getLeftChild();
-                    rightChild.setLeftChild(constructNode(value));
+                    rightChild.setLeftChild(constructInsertedNode(value));
                     RL_Rotate(rightChild);
                     rightChild.setLeftChild(temporaryInvoluntaryMigrant);
                     fixInsert(rightChild);
@@ -49,10 +56,10 @@ public class JolaTree<T extends Comparable<T>> extends BalancedBST<T, JolaNode<T
                     fixInsert(parent);
                 }
             } else {
-                Log.log("Inserting " + value + " as right child of " + parent);
-                var n = constructNode(value);
+                if (tracing) Log.log("Inserting " + value + " as right child of " + parent);
+                var n = constructInsertedNode(value);
                 parent.setRightChild(n);
-                printTreeToConsole();
+                traceTree();
                 fixInsert(parent);
             }
         }
@@ -79,8 +86,8 @@ public class JolaTree<T extends Comparable<T>> extends BalancedBST<T, JolaNode<T
     public void insertAsRoot (T value) {
         assert root == null : "Tried to insert into non-null root";
 
-        root = constructNode(value);
-        printTreeToConsole();
+        root = constructInsertedNode(value);
+        traceTree();
     }
 
     @Override
@@ -0,0 +1,94 @@
+package tree;
+
+import util.Histogram;
+
+import java.util.*;
+
+/**
+ * How long each kind of tree operation has taken, kept as one {@link Histogram} per operation so that the slow tail
+ * (like a long chain of fixes after a delete) shows up in the high percentiles. Uses the same memory however many
+ * operations are recorded, and recording doesn't allocate
+ * <br>
+ * Usage: <pre>
+ * long start = System.nanoTime();
+ * ...
+ * latency.stop(Operation.ADD, start);
+ * </pre>
+ */
+public class OperationLatency {
+    public enum Operation {
+        ADD("add"),
+        REMOVE("remove"),
+        CONTAINS("contains"),
+        INTERSECTION("intersection"),
+        RETAIN_ALL("retainAll");
+
+        public final String name;
+
+        Operation (String name) {
+            this.name = name;
+        }
+    }
+
+    private static final Operation[] operations = Operation.values();
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Histogram[] histograms = new Histogram[operations.length];
+
+    public OperationLatency () {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new Histogram();
+    }
+
+    /**
+     * Records the time from start until now
+     *
+     * @param start A time from {@link System#nanoTime()}
+     */
+    public void stop (Operation operation, long start) {
+        long elapsed = System.nanoTime() - start;
+        var histogram = histograms[operation.ordinal()];
+        synchronized (histogram) {
+            histogram.record(elapsed);
+        }
+    }
+
+    /**
+     * @return A copy of the times recorded for the operation, in ns, that later operations won't change
+     */
+    public Histogram snapshot (Operation operation) {
+        var res = new Histogram();
+        var histogram = histograms[operation.ordinal()];
+        synchronized (histogram) {
+            res.add(histogram);
+        }
+        return res;
+    }
+
+    public void reset () {
+        for (var histogram : histograms) {
+            synchronized (histogram) {
+                histogram.reset();
+            }
+        }
+    }
+
+    /**
+     * @return A line with the percentiles in µs for each operation that has run, with a header naming the tree, or an
+     * empty list if none have
+     */
+    public List<String> describe (String treeName) {
+        List<String> res = new ArrayList<>();
+        for (var operation : operations) {
+            var h = snapshot(operation);
+            if (h.getCount() == 0) continue;
+
+            StringBuilder sb = new StringBuilder(String.format("%-12s", operation.name));
+            for (double percentile : PERCENTILES)
+                sb.append(String.format("  %-6s%9.2f", "p" + String.valueOf(percentile).replace(".0", ""), h.getPercentile(percentile) / 1e3));
+            sb.append(String.format("  %-6s%9.2f  n %d", "max", h.getMax() / 1e3, h.getCount()));
+            res.add(sb.toString());
+        }
+        if (!res.isEmpty()) res.add(0, "──── " + treeName + " latency (µs) ────");
+        return res;
+    }
+}
@@ -3,6 +3,8 @@ package tree;
 import util.ANSICode;
 import util.Log;
 
+import java.util.*;
+
 public class RBT<T extends Comparable<T>> extends BalancedBST<T, RBTNode<T>> {
     /**
      * Performs a left-left rotation
@@ -45,11 +47,12 @@ public class RBT<T extends Comparable<T>> extends BalancedBST<T, RBTNode<T>> {
     protected boolean add(RBTNode<T> parent, T value) {
         // Color swap if necessary
         if (RBTNode.isRed(parent.getLeftChild()) && RBTNode.isRed(parent.getRightChild())) {
-            Log.log("Executing Color Swap with parent = " + parent, Log.NO_DISPLAY);
+            stats.count(TreeStats.Counter.COLOR_SWAP);
+            if (tracing) Log.log("Executing Color Swap with parent = " + parent, Log.NO_DISPLAY);
             if(parent.isNotRoot()) parent.swapColor();
             RBTNode.swapColor(parent.getLeftChild());
             RBTNode.swapColor(parent.getRightChild());
-            printTreeToConsole();
+            traceTree();
             fixInsert(parent);
         }
 
@@ -75,10 +78,19 @@ public class RBT<T extends Comparable<T>> extends BalancedBST<T, RBTNode<T>> {
      */
     private void fixDoubleBlack(RBTNode<T> sib) {
         var parent = sib.getParent();
+        var event = new TreeEvents.DoubleBlackFix();
+        event.begin();
+        if (event.isEnabled()) {
+            event.fixCase = sib.isRed() ? "Red sibling"
+                : RBTNode.isRed(sib.getLeftChild()) || RBTNode.isRed(sib.getRightChild()) ? "Black sibling, red child"
+                : "Black sibling, no red child";
+            event.treeSize = size();
+            event.depth = TreeEvents.getDepth(sib);
+        }
 
-        if (sib.getSibling() == null)
-            Log.log("Fix double black null", Log.NO_DISPLAY);
-        else Log.log("Fix double black " + sib.getSibling(), Log.NO_DISPLAY);
+        stats.count(TreeStats.Counter.DOUBLE_BLACK_FIX);
+        if (tracing)
+            Log.log("Fix double black " + (sib.getSibling() == null ? "null" : sib.getSibling()), Log.NO_DISPLAY);
 
         if (sib.isRed()) { // Red sibling
             if (sib.isLeftChild()) {
@@ -111,6 +123,8 @@ public class RBT<T extends Comparable<T>> extends BalancedBST<T, RBTNode<T>> {
             else
                 RBTNode.makeBlack(parent);
         }
+
+        event.commit();
     }
 
     @Override
@@ -127,14 +141,42 @@ public class RBT<T extends Comparable<T>> extends BalancedBST<T, RBTNode<T>> {
         }
     }
 
-    protected void _printNode(BSTNode<T> node, int targetWidth) {
-        String s = node.toString();
-        int space = targetWidth - 3 - s.length();
-        String l = " ".repeat(space / 2);
-        String r = " ".repeat(space - space / 2);
-        var color = RBTNode.isRed((RBTNode<T>) node) ? ANSICode.RED : ANSICode.PURPLE;
+    /**
+     * Also checks that the root is black, no red node has a red child, and every path down has the same number of
+     * black nodes
+     */
+    @Override
+    protected void checkInvariants (List<String> problems) {
+        super.checkInvariants(problems);
+        checkColors(root, problems);
+    }
+
+    /**
+     * Checks the red-black rules for the tree under root
+     */
+    static void checkColors (RBTNode<?> root, List<String> problems) {
+        if (RBTNode.isRed(root)) problems.add("Root " + root + " is red");
+        getBlackHeight(root, problems);
+    }
+
+    /**
+     * @return The number of black nodes on every path down from the node, counting missing children as black. If the
+     * paths differ, the problem is added to the list and the height of the left path is returned
+     */
+    private static int getBlackHeight (RBTNode<?> node, List<String> problems) {
+        if (node == null) return 1;
 
-        System.out.print("[" + color + ANSICode.BOLD + l + s + r + ANSICode.CLEAR + "] ");
+        if (node.isRed() && (RBTNode.isRed(node.getLeftChild()) || RBTNode.isRed(node.getRightChild())))
+            problems.add("Red node " + node + " has a red child");
+
+        int left = getBlackHeight(node.getLeftChild(), problems), right = getBlackHeight(node.getRightChild(), problems);
+        if (left != right) problems.add("Node " + node + " has black height " + left + " on the left but " + right + " on the right");
+        return left + (node.isRed() ? 0 : 1);
+    }
+
+    @Override
+    protected ANSICode getConsoleColor(BSTNode<T> node) {
+        return RBTNode.isRed((RBTNode<T>) node) ? ANSICode.RED : ANSICode.PURPLE;
     }
 
     @Override
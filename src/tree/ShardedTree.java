@@ -0,0 +1,460 @@
+package tree;
+
+import org.jetbrains.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A sorted collection split by value into shards, each its own tree with its own lock, so that threads working on
+ * values in different shards don't wait for each other. Shard {@code i} holds the values from its lower bound up to,
+ * but not including, the lower bound of shard {@code i + 1}.
+ * <br>
+ * There is one shard to start with. Shards that get more than their share of the writes are split at their median,
+ * and neighbouring shards that get few writes are merged, so the shards follow where the values are actually going.
+ * <br>
+ * Single values are added, removed and looked up atomically. Anything that looks at more than one shard (size,
+ * iteration, {@link #getSmallest}, ...) sees each shard at a slightly different time, so it can miss changes made
+ * while it runs, the same way {@link java.util.concurrent.ConcurrentSkipListSet} does. Like the trees, this holds
+ * duplicates
+ */
+public class ShardedTree <T extends Comparable<T>> extends AbstractCollection<T> {
+    private static final class Shard <T extends Comparable<T>> {
+        /**
+         * The smallest value the shard can hold. Null for the first shard, which holds everything below the second
+         */
+        final T lowerBound;
+        final AbstractBST<T, ?> tree;
+
+        // Only read and written while holding the tree's lock
+        int writes = 0;
+        boolean retired = false;
+
+        Shard (T lowerBound, AbstractBST<T, ?> tree) {
+            this.lowerBound = lowerBound;
+            this.tree = tree;
+        }
+    }
+
+    /**
+     * The number of writes to one shard between checks of whether the shards should change
+     */
+    private static final int REBALANCE_INTERVAL = 1 << 10;
+
+    /**
+     * Shards smaller than this aren't split, however busy they are
+     */
+    private static final int MIN_SPLIT_SIZE = 64;
+
+    private final Supplier<? extends AbstractBST<T, ?>> factory;
+    private final int targetShards, maxShards;
+
+    /**
+     * The shards in order. Replaced, never changed, so it can be read without locking. A shard that has been replaced
+     * is marked retired before its lock is released, so anything that finds a retired shard should read this again
+     */
+    private volatile Shard<T>[] shards;
+
+    /**
+     * Held while the shards are changed. Operations on values never wait for it
+     */
+    private final ReentrantLock layoutLock = new ReentrantLock();
+
+    private final LongAdder size = new LongAdder();
+    private volatile long splits = 0, merges = 0;
+
+    /**
+     * @param factory      Makes the tree for each shard, like {@code RBT::new}
+     * @param targetShards How many threads are expected to write at once. Shards split until each gets about this
+     *                     share of the writes, up to twice this many shards
+     */
+    public ShardedTree (Supplier<? extends AbstractBST<T, ?>> factory, int targetShards) {
+        if (targetShards < 1) throw new IllegalArgumentException("Need at least one shard, got " + targetShards);
+        this.factory = factory;
+        this.targetShards = targetShards;
+        this.maxShards = targetShards * 2;
+        this.shards = newShards(1);
+        this.shards[0] = makeShard(null);
+    }
+
+    /**
+     * Makes a tree with a shard for each available processor
+     */
+    public ShardedTree (Supplier<? extends AbstractBST<T, ?>> factory) {
+        this(factory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Java can't make arrays of a generic type, so this makes a raw array. That is safe since the array is only ever
+     * given shards of this tree
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends Comparable<T>> Shard<T>[] newShards (int length) {
+        return new Shard[length];
+    }
+
+    /**
+     * @return value as the type of the tree, for methods that take any Object. A value of some other type throws
+     * ClassCastException when it is compared, as it would in the trees themselves
+     */
+    @SuppressWarnings("unchecked")
+    private T asValue (Object value) {
+        return (T) value;
+    }
+
+    private Shard<T> makeShard (T lowerBound) {
+        var tree = factory.get();
+        tree.setTracing(false);
+        return new Shard<>(lowerBound, tree);
+    }
+
+    /**
+     * @return The shard that holds the value, found by binary search of the lower bounds
+     */
+    @Contract(pure = true)
+    private static <T extends Comparable<T>> Shard<T> shardFor (Shard<T>[] shards, T value) {
+        int lo = 0, hi = shards.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (value.compareTo(shards[mid].lowerBound) >= 0) lo = mid;
+            else hi = mid - 1;
+        }
+        return shards[lo];
+    }
+
+    @Override
+    public boolean contains (Object value) {
+        if (!(value instanceof Comparable<?>)) throw new ClassCastException();
+        while (true) {
+            var shard = shardFor(shards, asValue(value));
+            synchronized (shard.tree) {
+                if (!shard.retired) return shard.tree.contains(value);
+            }
+        }
+    }
+
+    @Override
+    public boolean add (T value) {
+        return write(Objects.requireNonNull(value), true);
+    }
+
+    @Override
+    public boolean remove (Object value) {
+        if (!(value instanceof Comparable<?>)) return false;    // Can't remove a value that isn't of the right type
+        return write(asValue(value), false);
+    }
+
+    private boolean write (T value, boolean add) {
+        while (true) {
+            var shard = shardFor(shards, value);
+            boolean changed, rebalance;
+            synchronized (shard.tree) {
+                if (shard.retired) continue;
+                changed = add ? shard.tree.add(value) : shard.tree.remove(value);
+                rebalance = ++shard.writes % REBALANCE_INTERVAL == 0;
+            }
+
+            if (changed) size.add(add ? 1 : -1);
+            if (rebalance) rebalance();
+            return changed;
+        }
+    }
+
+    @Override
+    @Contract(pure = true)
+    public int size () {
+        return (int) size.sum();
+    }
+
+    @Override
+    @Contract(pure = true)
+    public boolean isEmpty () {
+        return size.sum() == 0;
+    }
+
+    /**
+     * Removes all values, going back to one shard
+     */
+    @Override
+    public void clear () {
+        layoutLock.lock();
+        try {
+            var old = shards;
+            // Writes from now on go to the new shard, and writes that already found an old shard are cleared with it
+            Shard<T>[] fresh = newShards(1);
+            fresh[0] = makeShard(null);
+            shards = fresh;
+            for (var shard : old) {
+                synchronized (shard.tree) {
+                    shard.retired = true;
+                    size.add(-shard.tree.size());
+                }
+            }
+        } finally {
+            layoutLock.unlock();
+        }
+    }
+
+    /**
+     * @return The values in order. Each shard is copied when the iterator gets to it, so changes to shards it hasn't
+     * got to yet show up and the tree can be changed while iterating
+     */
+    @Override
+    @Contract(pure = true)
+    public @NotNull Iterator<T> iterator () {
+        return new ShardIterator(false);
+    }
+
+    /**
+     * @return The values from largest to smallest, copied shard by shard like {@link #iterator}
+     */
+    @Contract(pure = true)
+    public @NotNull Iterator<T> descendingIterator () {
+        return new ShardIterator(true);
+    }
+
+    /**
+     * @return The values in order, from smallest to largest
+     */
+    @Contract(pure = true)
+    public Iterable<T> inOrder () {
+        return this;
+    }
+
+    /**
+     * @return The values from largest to smallest
+     */
+    @Contract(pure = true)
+    public Iterable<T> reverseOrder () {
+        return this::descendingIterator;
+    }
+
+    private class ShardIterator implements Iterator<T> {
+        private final Shard<T>[] snapshot = shards;
+        private final boolean descending;
+        private int shard;
+        private List<T> values = List.of();
+        private int next = 0;
+        private T last = null;
+
+        ShardIterator (boolean descending) {
+            this.descending = descending;
+            this.shard = descending ? snapshot.length : -1;
+        }
+
+        @Override
+        public boolean hasNext () {
+            while (next == values.size()) {
+                shard += descending ? -1 : 1;
+                if (shard < 0 || shard >= snapshot.length) return false;
+                var tree = snapshot[shard].tree;
+                synchronized (tree) {
+                    values = new ArrayList<>(tree);
+                }
+                next = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public T next () {
+            if (!hasNext()) throw new NoSuchElementException();
+            int i = next++;
+            return last = values.get(descending ? values.size() - 1 - i : i);
+        }
+
+        @Override
+        public void remove () {
+            if (last == null) throw new IllegalStateException();
+            ShardedTree.this.remove(last);
+            last = null;
+        }
+    }
+
+    /**
+     * @return The smallest value, or null if there are none
+     */
+    @Contract(pure = true)
+    public T getSmallest () {
+        return getEnd(false);
+    }
+
+    /**
+     * @return The largest value, or null if there are none
+     */
+    @Contract(pure = true)
+    public T getLargest () {
+        return getEnd(true);
+    }
+
+    private T getEnd (boolean largest) {
+        retry:
+        while (true) {
+            var snapshot = shards;
+            for (int i = 0; i < snapshot.length; i++) {
+                var shard = snapshot[largest ? snapshot.length - 1 - i : i];
+                synchronized (shard.tree) {
+                    if (shard.retired) continue retry;
+                    if (!shard.tree.isEmpty()) return largest ? shard.tree.getLargest() : shard.tree.getSmallest();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Splits shards that get more than twice their share of the writes and merges neighbours that together get less
+     * than half of it, then starts counting writes again. Skipped if another thread is already doing it
+     */
+    private void rebalance () {
+        if (!layoutLock.tryLock()) return;
+        try {
+            var old = shards;
+            int[] writes = new int[old.length];
+            long totalWrites = 0;
+            for (int i = 0; i < old.length; i++) {
+                synchronized (old[i].tree) {
+                    totalWrites += writes[i] = old[i].writes;
+                }
+            }
+            double share = totalWrites / (double) targetShards;
+
+            for (int i = 0; i < old.length; i++) {
+                if (writes[i] > 2 * share && shards.length < maxShards) split(old[i]);
+                else if (i + 1 < old.length && writes[i] + writes[i + 1] < share / 2) merge(old[i], old[++i]);
+            }
+
+            // Halve the counts rather than clearing them, so the next check also remembers some of the past
+            for (var shard : shards) {
+                synchronized (shard.tree) {
+                    shard.writes /= 2;
+                }
+            }
+        } finally {
+            layoutLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces the shard with two shards, split at its median. The shard stays locked until the new shards are
+     * published, so nothing can be written to it in the meantime
+     */
+    private void split (Shard<T> shard) {
+        synchronized (shard.tree) {
+            List<T> values = new ArrayList<>(shard.tree);
+            if (values.size() < MIN_SPLIT_SIZE) return;
+            T median = values.get(values.size() / 2);
+            // Duplicates of the median must all end up in the upper shard
+            int mid = values.size() / 2;
+            while (mid > 0 && median.compareTo(values.get(mid - 1)) == 0) mid--;
+            if (mid == 0) return;
+
+            var lower = makeShard(shard.lowerBound);
+            var upper = makeShard(median);
+            for (int i = 0; i < values.size(); i++) (i < mid ? lower : upper).tree.add(values.get(i));
+            lower.writes = upper.writes = shard.writes / 2;
+
+            publishRetiring(shard, lower, upper, null);
+            splits++;
+        }
+    }
+
+    /**
+     * Replaces two neighbouring shards with one holding the values of both
+     */
+    private void merge (Shard<T> first, Shard<T> second) {
+        synchronized (first.tree) {
+            synchronized (second.tree) {
+                var merged = makeShard(first.lowerBound);
+                for (var value : first.tree) merged.tree.add(value);
+                for (var value : second.tree) merged.tree.add(value);
+                merged.writes = first.writes + second.writes;
+
+                publishRetiring(first, merged, null, second);
+                merges++;
+            }
+        }
+    }
+
+    /**
+     * Publishes shards with the retired shard (and the one after it, if merging) replaced by the new shards, then
+     * marks the old ones retired. Must be called holding the layout lock and the locks of the old shards
+     */
+    private void publishRetiring (Shard<T> old, Shard<T> replacement, Shard<T> secondReplacement, Shard<T> alsoOld) {
+        List<Shard<T>> next = new ArrayList<>(shards.length + 1);
+        for (var shard : shards) {
+            if (shard == old) {
+                next.add(replacement);
+                if (secondReplacement != null) next.add(secondReplacement);
+            } else if (shard != alsoOld) next.add(shard);
+        }
+        shards = next.toArray(newShards(0));
+        old.retired = true;
+        if (alsoOld != null) alsoOld.retired = true;
+    }
+
+    /**
+     * @return The number of shards right now
+     */
+    @Contract(pure = true)
+    public int getShardCount () {
+        return shards.length;
+    }
+
+    /**
+     * @return The number of times a shard has been split and two shards have been merged
+     */
+    @Contract(pure = true)
+    public long[] getSplitsAndMerges () {
+        return new long[] { splits, merges };
+    }
+
+    /**
+     * @return The size of each shard, in order
+     */
+    @Contract(pure = true)
+    public int[] getShardSizes () {
+        return Arrays.stream(shards).mapToInt(shard -> shard.tree.size()).toArray();
+    }
+
+    /**
+     * Checks every shard with {@link AbstractBST#checkInvariants()}, and that each shard's values are within its bounds
+     * and the sizes add up. Only meaningful while nothing is changing the tree
+     *
+     * @return A description of each problem found, or an empty list if there are none
+     */
+    public List<String> checkInvariants () {
+        List<String> problems = new ArrayList<>();
+        var snapshot = shards;
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            var shard = snapshot[i];
+            var upperBound = i + 1 < snapshot.length ? snapshot[i + 1].lowerBound : null;
+            synchronized (shard.tree) {
+                if (shard.retired) problems.add("Shard " + i + " is retired but still in use");
+                for (var problem : shard.tree.checkInvariants()) problems.add("Shard " + i + ": " + problem);
+                if (shard.tree.isEmpty()) continue;
+                count += shard.tree.size();
+                if (shard.lowerBound != null && shard.tree.getSmallest().compareTo(shard.lowerBound) < 0)
+                    problems.add("Shard " + i + " holds " + shard.tree.getSmallest() + ", below its lower bound " + shard.lowerBound);
+                if (upperBound != null && shard.tree.getLargest().compareTo(upperBound) >= 0)
+                    problems.add("Shard " + i + " holds " + shard.tree.getLargest() + ", not below the next lower bound " + upperBound);
+            }
+        }
+        if (count != size.sum()) problems.add("Shards hold " + count + " values but the size is " + size.sum());
+        return problems;
+    }
+
+    /**
+     * @return The height of the tallest shard. Shards are searched after a binary search over the bounds, so this is
+     * how many nodes a lookup can pass through, on top of that search
+     */
+    @Contract(pure = true)
+    public int getHeight () {
+        int res = -1;
+        for (var shard : shards) res = Math.max(res, shard.tree.getHeight());
+        return res;
+    }
+}
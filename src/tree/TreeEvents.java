@@ -0,0 +1,68 @@
+package tree;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder events for changes to trees, so that tree work can be lined up with GC, allocation and everything
+ * else JFR records. While nothing is recording, making and committing an event costs next to nothing, and fields that
+ * take any work to find are only filled in while the event is enabled
+ */
+public final class TreeEvents {
+    private static final String CATEGORY = "Graphic BST Lab";
+
+    private TreeEvents () {}
+
+    @Name("bstlab.Insert")
+    @Label("Tree Insert")
+    @Category({CATEGORY, "Tree"})
+    @Description("A value added to a tree, including any rebalancing")
+    static class Insert extends Event {
+        @Label("Tree Type") String treeType;
+        @Label("Value") String value;
+        @Label("Tree Size") int treeSize;
+        @Label("Depth") @Description("Depth of the new node once the tree has been rebalanced") int depth;
+        @Label("Rotations") int rotations;
+    }
+
+    @Name("bstlab.Delete")
+    @Label("Tree Delete")
+    @Category({CATEGORY, "Tree"})
+    @Description("A value removed from a tree, including any rebalancing")
+    static class Delete extends Event {
+        @Label("Tree Type") String treeType;
+        @Label("Value") String value;
+        @Label("Found") boolean found;
+        @Label("Tree Size") int treeSize;
+        @Label("Depth") @Description("Depth of the node the value was found in, or -1 if it wasn't") int depth;
+        @Label("Rotations") int rotations;
+    }
+
+    @Name("bstlab.Rotation")
+    @Label("Tree Rotation")
+    @Category({CATEGORY, "Tree", "Rebalancing"})
+    static class Rotation extends Event {
+        @Label("Tree Type") String treeType;
+        @Label("Kind") String kind;
+        @Label("Tree Size") int treeSize;
+        @Label("Depth") @Description("Depth of the node at the top of the rotated subtree") int depth;
+    }
+
+    @Name("bstlab.DoubleBlackFix")
+    @Label("Double Black Fix")
+    @Category({CATEGORY, "Tree", "Rebalancing"})
+    @Description("One step of fixing a double black node after a delete from a red-black tree")
+    static class DoubleBlackFix extends Event {
+        @Label("Case") String fixCase;
+        @Label("Tree Size") int treeSize;
+        @Label("Depth") @Description("Depth of the sibling of the double black node") int depth;
+    }
+
+    /**
+     * @return The number of edges between the node and the root
+     */
+    static int getDepth (BSTNode<?> node) {
+        int depth = -1;
+        for (var n = node; n != null; n = n.getParent()) depth++;
+        return depth;
+    }
+}
@@ -0,0 +1,94 @@
+package tree;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the work a tree does: how many operations it ran, and the comparisons, node visits, rotations and fixes they
+ * took. A node is visited once each time a search, insert or delete passes through it, but can be compared more than
+ * once on the way, like when {@link JolaTree} looks ahead to a child. Off by default. While off, counting is a single
+ * check of a field, so it costs nothing worth measuring. Counts can be added from any thread
+ */
+public class TreeStats {
+    public enum Counter {
+        INSERT("Inserts"),
+        REMOVE("Removes"),
+        LOOKUP("Lookups"),
+        COMPARISON("Comparisons"),
+        VISIT("Nodes visited"),
+        LL_ROTATION("Left-left rotations"),
+        RR_ROTATION("Right-right rotations"),
+        LR_ROTATION("Left-right rotations"),
+        RL_ROTATION("Right-left rotations"),
+        AVL_REBALANCE("AVL rebalances"),
+        COLOR_SWAP("Color swaps"),
+        DOUBLE_BLACK_FIX("Double black fixes");
+
+        public final String description;
+
+        Counter (String description) {
+            this.description = description;
+        }
+    }
+
+    private static final Counter[] counters = Counter.values();
+
+    private final LongAdder[] counts = new LongAdder[counters.length];
+    private volatile boolean enabled = false;
+
+    public TreeStats () {
+        for (int i = 0; i < counts.length; i++) counts[i] = new LongAdder();
+    }
+
+    public boolean isEnabled () {
+        return enabled;
+    }
+
+    public void setEnabled (boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Adds one to the counter, if counting is on
+     */
+    public void count (Counter counter) {
+        if (enabled) counts[counter.ordinal()].increment();
+    }
+
+    public long get (Counter counter) {
+        return counts[counter.ordinal()].sum();
+    }
+
+    /**
+     * @return The number of inserts, removes and lookups
+     */
+    public long getOperations () {
+        return get(Counter.INSERT) + get(Counter.REMOVE) + get(Counter.LOOKUP);
+    }
+
+    public long getRotations () {
+        return get(Counter.LL_ROTATION) + get(Counter.RR_ROTATION) + get(Counter.LR_ROTATION) + get(Counter.RL_ROTATION);
+    }
+
+    public void reset () {
+        for (var count : counts) count.reset();
+    }
+
+    /**
+     * @return A line for each counter that isn't zero, with how many there were per operation
+     */
+    public List<String> describe () {
+        long operations = getOperations();
+        List<String> res = new ArrayList<>();
+        for (var counter : counters) {
+            long count = get(counter);
+            if (count == 0) continue;
+            if (counter.ordinal() <= Counter.LOOKUP.ordinal()) res.add(String.format("%-22s %d", counter.description, count));
+            else res.add(String.format("%-22s %d (%.2f per operation)", counter.description, count, count / (double) Math.max(operations, 1)));
+        }
+        long rotations = getRotations();
+        if (rotations > 0)
+            res.add(String.format("%-22s %d (%.2f per operation)", "All rotations", rotations, rotations / (double) Math.max(operations, 1)));
+        return res;
+    }
+}
@@ -0,0 +1,115 @@
+package util;
+
+import java.io.*;
+
+/**
+ * Writes text to a terminal through one large buffer, cutting lines off at a maximum width. ANSI escape codes don't
+ * count towards the width, and are still written after a line has been cut off so colors are always cleared.
+ * Nothing reaches the terminal until {@link #flush()}
+ */
+public class ConsoleWriter implements Flushable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final char ELISION = '…', ESCAPE = '\u001B';
+
+	private final Writer out;
+	private final int maxWidth;
+
+	// Visible chars written on the current line, and whether the rest of the line is being dropped
+	private int column = 0;
+	private boolean cut = false;
+	private boolean inEscape = false;
+
+	// The last char that fits on the line, and any escape codes after it. Held back until it is known whether the line
+	// ends there or has to be cut off
+	private final StringBuilder held = new StringBuilder();
+
+	/**
+	 * @param maxWidth The most chars to show on a line, including the {@value #ELISION} that marks a line as cut off
+	 */
+	public ConsoleWriter (OutputStream out, int maxWidth) {
+		this(new OutputStreamWriter(out), maxWidth);
+	}
+
+	public ConsoleWriter (Writer out, int maxWidth) {
+		this.out = new BufferedWriter(out, BUFFER_SIZE);
+		this.maxWidth = Math.max(maxWidth, 1);
+	}
+
+	public ConsoleWriter write (ANSICode code) {
+		return write(code.toString());
+	}
+
+	public int getMaxWidth () {
+		return maxWidth;
+	}
+
+	public ConsoleWriter write (CharSequence text) {
+		return write(text, 0, text.length());
+	}
+
+	/**
+	 * Writes the chars of text in [start, end)
+	 */
+	public ConsoleWriter write (CharSequence text, int start, int end) {
+		try {
+			for (int i = start; i < end; i++) {
+				char c = text.charAt(i);
+
+				if (inEscape || c == ESCAPE) {
+					// Escape codes run until a letter
+					inEscape = c == ESCAPE || !Character.isLetter(c);
+					if (held.isEmpty()) out.write(c);
+					else held.append(c);
+				} else if (cut) {
+					// Drop the rest of the line
+				} else if (column < maxWidth - 1) {
+					// Write as many plain chars as fit in one go
+					int runEnd = i, limit = Math.min(end, i + maxWidth - 1 - column);
+					while (runEnd < limit && text.charAt(runEnd) != ESCAPE) runEnd++;
+					out.append(text, i, runEnd);
+					column += runEnd - i;
+					i = runEnd - 1;
+				} else if (held.isEmpty()) {
+					held.append(c);
+					column++;
+				} else {
+					// The line is too long. Replace the held char with the marker, but keep the escape codes after it
+					out.write(ELISION);
+					out.append(held, 1, held.length());
+					held.setLength(0);
+					cut = true;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return this;
+	}
+
+	public ConsoleWriter newLine () {
+		try {
+			out.append(held);
+			out.write(System.lineSeparator());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		held.setLength(0);
+		column = 0;
+		cut = false;
+		return this;
+	}
+
+	/**
+	 * Writes everything so far to the terminal, including anything held back from the current line
+	 */
+	@Override
+	public void flush () {
+		try {
+			out.append(held);
+			held.setLength(0);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -4,17 +4,17 @@ import app.treedrawer.TreeDrawer;
 
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.Graphics;
+import java.awt.font.FontRenderContext;
 import java.awt.font.TextAttribute;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 import java.text.AttributedString;
 
 public class GraphicsUtil {
-	private static final Graphics dummyGraphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getGraphics();
+	// Same as the context of a plain BufferedImage's graphics. Fonts are immutable, so this is safe from any thread
+	private static final FontRenderContext measureContext = new FontRenderContext(null, false, false);
 
 	public static Dimension getRenderedStringSize (String text, Font font) {
-		Rectangle2D size = dummyGraphics.getFontMetrics(font).getStringBounds(text, dummyGraphics);
+		Rectangle2D size = font.getStringBounds(text, measureContext);
 		return new Dimension((int) size.getWidth(), (int) size.getHeight());
 	}
 
@@ -0,0 +1,85 @@
+package util;
+
+import java.util.*;
+
+/**
+ * Counts non-negative values in a fixed set of buckets, so recording never allocates and percentiles can be read at
+ * any time. Buckets get wider as values grow: each power of two is split into {@link #SUB_BUCKETS} buckets, so a
+ * percentile is never off by more than 1 / {@link #SUB_BUCKETS} of its value. Not thread safe
+ */
+public class Histogram {
+	private static final int SUB_BITS = 4, SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0, max = 0, sum = 0;
+
+	private static int bucketOf (long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+		int exp = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @return The largest value that goes in the bucket
+	 */
+	private static long upperBoundOf (int bucket) {
+		if (bucket < SUB_BUCKETS) return bucket;
+		int exp = bucket / SUB_BUCKETS + SUB_BITS - 1, sub = bucket % SUB_BUCKETS;
+		long lower = (long) (SUB_BUCKETS + sub) << (exp - SUB_BITS);
+		return lower + (1L << (exp - SUB_BITS)) - 1;
+	}
+
+	/**
+	 * @param value Negative values are counted as 0
+	 */
+	public void record (long value) {
+		value = Math.max(value, 0);
+		counts[bucketOf(value)]++;
+		count++;
+		sum += value;
+		max = Math.max(max, value);
+	}
+
+	public long getCount () {
+		return count;
+	}
+
+	public long getMax () {
+		return max;
+	}
+
+	public double getMean () {
+		return count == 0 ? 0 : sum / (double) count;
+	}
+
+	/**
+	 * @param percentile In [0, 100]
+	 * @return A value that at least that percent of the recorded values are less than or equal to, or 0 if nothing
+	 * has been recorded
+	 */
+	public long getPercentile (double percentile) {
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * count)), seen = 0;
+		for (int i = 0; i < BUCKETS && count > 0; i++) {
+			seen += counts[i];
+			if (seen >= target) return Math.min(upperBoundOf(i), max);
+		}
+		return max;
+	}
+
+	/**
+	 * Adds everything recorded in another histogram to this one
+	 */
+	public void add (Histogram other) {
+		for (int i = 0; i < BUCKETS; i++) counts[i] += other.counts[i];
+		count += other.count;
+		sum += other.sum;
+		max = Math.max(max, other.max);
+	}
+
+	public void reset () {
+		Arrays.fill(counts, 0);
+		count = max = sum = 0;
+	}
+}
@@ -3,23 +3,122 @@ package util;
 import app.Style;
 
 import java.awt.Color;
-import java.util.*;
-
+import java.awt.Font;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Messages shown on screen and written to the terminal. Logging never blocks on the terminal: messages are put in a
+ * bounded queue that a background thread writes out in batches. The on-screen list is replaced as a whole whenever a
+ * message is added, so it can be read without locking
+ */
 public class Log {
-	private static final Deque<LogItem> log = new ArrayDeque<>();
 	private static final long fadeTime = 16000;
 	private static final int maxSize = 30;
 
 	public static final int NO_TERMINAL = 1, NO_DISPLAY = 2;
 
+	// Added to the flags of every message. Used to stop messages piling up when nothing is displaying them
+	private static int defaultFlags = 0;
+
+	// The messages on screen, newest first. Never changed once published
+	private static final AtomicReference<LogItem[]> display = new AtomicReference<>(new LogItem[0]);
+
+	// Incremented every time a message is added to the display
+	private static final AtomicLong version = new AtomicLong();
+
+	// Messages waiting to be written to the terminal. Message number i goes in slot i % TERMINAL_QUEUE_SIZE, and the
+	// writer empties each slot once it has written it. Loggers only wait if the writer falls a whole queue behind
+	private static final int TERMINAL_QUEUE_SIZE = 1 << 12;
+	private static final AtomicReferenceArray<LogItem> terminalQueue = new AtomicReferenceArray<>(TERMINAL_QUEUE_SIZE);
+	private static final AtomicLong claimed = new AtomicLong();
+
+	// The number of messages the writer has taken off the queue, and has written and flushed
+	private static volatile long taken = 0, flushed = 0;
+
+	// The most chars the writer collects before writing them out
+	private static final int MAX_BATCH_CHARS = 1 << 16;
+
+	private static final Thread writer = new Thread(Log::writeToTerminal, "Log writer");
+	private static volatile boolean writerWaiting = false;
+
+	static {
+		writer.setDaemon(true);
+		writer.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(Log::flush));
+	}
+
+	public static void disableDisplay () {
+		defaultFlags |= NO_DISPLAY;
+	}
+
 	private static void _addMessage (String message, LogLevel level, int flags) {
+		flags |= defaultFlags;
+		var item = new LogItem(message, level);
+
 		if((flags & NO_DISPLAY) == 0) {
-			synchronized (log) {
-				log.addFirst(new LogItem(message, level));
+			LogItem[] old, res;
+			do {
+				old = display.get();
+				res = new LogItem[Math.min(old.length + 1, maxSize)];
+				res[0] = item;
+				System.arraycopy(old, 0, res, 1, res.length - 1);
+			} while (!display.compareAndSet(old, res));
+			version.incrementAndGet();
+		}
+
+		if((flags & NO_TERMINAL) == 0) {
+			long n = claimed.getAndIncrement();
+			while (n - taken >= TERMINAL_QUEUE_SIZE) Thread.onSpinWait();
+			terminalQueue.set((int) (n % TERMINAL_QUEUE_SIZE), item);
+			if (writerWaiting) LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * Runs on the writer thread. Takes messages off the queue in order, and writes out everything it has whenever the
+	 * queue runs dry or the batch gets big
+	 */
+	private static void writeToTerminal () {
+		StringBuilder batch = new StringBuilder();
+		while (true) {
+			int slot = (int) (taken % TERMINAL_QUEUE_SIZE);
+			var item = terminalQueue.get(slot);
+
+			if (item == null || batch.length() >= MAX_BATCH_CHARS) {
+				if (!batch.isEmpty()) {
+					System.out.print(batch);
+					System.out.flush();
+					batch.setLength(0);
+					flushed = taken;
+					continue;
+				}
+
+				// Check again after saying we're waiting, so a message added in between isn't missed
+				writerWaiting = true;
+				if (terminalQueue.get(slot) == null) LockSupport.park();
+				writerWaiting = false;
+				continue;
 			}
+
+			terminalQueue.set(slot, null);
+			taken++;
+			batch.append(item.level.tColor).append(item.message).append(ANSICode.CLEAR).append(System.lineSeparator());
+		}
+	}
+
+	/**
+	 * Waits until every message logged so far has been written to the terminal. Call this before writing to
+	 * {@link System#out} directly, so that the output stays in order
+	 */
+	public static void flush () {
+		long target = claimed.get();
+		while (flushed < target) {
+			LockSupport.unpark(writer);
+			LockSupport.parkNanos(100_000);
 		}
-		if((flags & NO_TERMINAL) == 0)
-			System.out.println(level.tColor + message + ANSICode.CLEAR);
 	}
 
 	public static void err(String message) { err(message, 0); }
@@ -46,24 +145,46 @@ public class Log {
 		_addMessage(output, LogLevel.Output, flags);
 	}
 
-	public static void forEachLogItem(LogItemAction action) {
+	/**
+	 * @return A number that changes every time a message is added to the display
+	 */
+	public static long getVersion () {
+		return version.get();
+	}
+
+	/**
+	 * @return Whether no messages are on screen, including ones that have faded out
+	 */
+	public static boolean isEmpty () {
+		var items = display.get();
+		return items.length == 0 || System.currentTimeMillis() >= items[0].startTime + fadeTime;
+	}
+
+	public static int getMaxSize () {
+		return maxSize;
+	}
+
+	/**
+	 * Goes through the messages on screen, newest first
+	 *
+	 * @param font The font the messages will be drawn in. Each message is measured in it once and the width is kept
+	 */
+	public static void forEachLogItem(Font font, LogItemAction action) {
 		long currentTime = System.currentTimeMillis();
 
-		while (log.size() > maxSize || !log.isEmpty() && currentTime >= log.peekLast().startTime + fadeTime) {
-			log.removeLast();
-		}
+		var items = display.get();
+		for (int i = 0; i < items.length; i++) {
+			var item = items[i];
+			// Older messages can only have faded out further
+			if (currentTime >= item.startTime + fadeTime) break;
 
-		int i = 0;
-		synchronized (log) {
-			for (var item : log) {
-				float t = (currentTime - item.startTime) / (float) fadeTime;
-				action.execute(i++, item.message, t, item.level);
-			}
+			float t = (currentTime - item.startTime) / (float) fadeTime;
+			action.execute(i, item.message, item.getWidth(font), t, item.level);
 		}
 	}
 
 	public interface LogItemAction {
-		void execute (int i, String message, float t, LogLevel level);
+		void execute (int i, String message, int width, float t, LogLevel level);
 	}
 
 	public enum LogLevel {
@@ -87,12 +208,24 @@ public class Log {
 		public final String message;
 		public final LogLevel level;
 
+		// Width of the message in measuredFont, so it isn't measured again every frame
+		private Font measuredFont;
+		private int width;
+
 		LogItem (String text, LogLevel level) {
 			this.startTime = System.currentTimeMillis();
 			this.message = text;
 			this.level = level;
 		}
 
+		int getWidth (Font font) {
+			if (font != measuredFont) {
+				width = GraphicsUtil.getRenderedStringSize(message, font).width;
+				measuredFont = font;
+			}
+			return width;
+		}
+
 		@Override
 		public String toString () {
 			return "LogItem{" + message + "}";
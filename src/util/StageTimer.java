@@ -0,0 +1,106 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Times one stage of the program, like painting a frame or laying out the tree. Keeps a rolling histogram of the
+ * last few seconds for showing live, and one of every time recorded since the last reset for reports.
+ * <br>
+ * Usage: <pre>
+ * long start = System.nanoTime();
+ * ...
+ * timer.stop(start);
+ * </pre>
+ */
+public class StageTimer {
+	// The rolling histogram covers between one and two of these
+	private static final long WINDOW = 2_000_000_000L;
+
+	private static final List<StageTimer> timers = new CopyOnWriteArrayList<>();
+
+	private final String name;
+	private Histogram current = new Histogram(), previous = new Histogram();
+	private final Histogram total = new Histogram(), merged = new Histogram();
+	private long windowStart = System.nanoTime();
+
+	private StageTimer (String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Makes a timer that shows up in {@link #report}
+	 */
+	public static StageTimer create (String name) {
+		var timer = new StageTimer(name);
+		timers.add(timer);
+		return timer;
+	}
+
+	public String getName () {
+		return name;
+	}
+
+	/**
+	 * Records the time from start until now
+	 *
+	 * @param start A time from {@link System#nanoTime()}
+	 */
+	public synchronized void stop (long start) {
+		long now = System.nanoTime();
+		if (now - windowStart >= WINDOW) {
+			var oldest = previous;
+			previous = current;
+			current = oldest;
+			current.reset();
+			windowStart = now;
+		}
+		current.record(now - start);
+		total.record(now - start);
+	}
+
+	public synchronized void reset () {
+		current.reset();
+		previous.reset();
+		total.reset();
+		windowStart = System.nanoTime();
+	}
+
+	/**
+	 * @param rolling Whether to only describe the last few seconds, rather than everything since the last reset
+	 * @return A line with the percentiles of this stage in ms, or null if it has never run
+	 */
+	public synchronized String describe (boolean rolling) {
+		Histogram h = total;
+		if (rolling) {
+			merged.reset();
+			merged.add(previous);
+			merged.add(current);
+			h = merged;
+		}
+		if (h.getCount() == 0) return null;
+
+		return String.format(
+			"%-9s p50 %8.3f  p99 %8.3f  max %8.3f  n %d",
+			name, h.getPercentile(50) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6, h.getCount()
+		);
+	}
+
+	/**
+	 * @return A line for each timer that has run, with a header, or an empty list if none have
+	 * @see #describe
+	 */
+	public static List<String> report (boolean rolling) {
+		List<String> res = new ArrayList<>();
+		for (var timer : timers) {
+			String line = timer.describe(rolling);
+			if (line != null) res.add(line);
+		}
+		if (!res.isEmpty()) res.add(0, "──── Timings (ms) ────");
+		return res;
+	}
+
+	public static void resetAll () {
+		for (var timer : timers) timer.reset();
+	}
+}
@@ -0,0 +1,86 @@
+package util;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.util.*;
+
+/**
+ * A bounded, least-recently-used cache of measured and shaped text for one font. Measuring a string and working out
+ * which chars need the fallback font is slow, and the same few strings get drawn over and over, so this is only done
+ * once per string. Make a new cache when the font changes
+ */
+public class TextCache {
+	// Text is drawn with antialiasing on, so it has to be shaped that way too
+	private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, true, false);
+
+	private final Font font, fallbackFont;
+	private final Map<String, RenderedText> entries;
+
+	/**
+	 * @param font         The font to draw with
+	 * @param fallbackFont The font to draw chars that font can't display with
+	 * @param capacity     The maximum number of strings to keep
+	 */
+	public TextCache (Font font, Font fallbackFont, int capacity) {
+		this.font = font;
+		this.fallbackFont = fallbackFont;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry (Map.Entry<String, RenderedText> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	public Font getFont () {
+		return font;
+	}
+
+	/**
+	 * @return The measured and shaped text, from the cache if possible
+	 */
+	public RenderedText get (String text) {
+		synchronized (entries) {
+			var res = entries.get(text);
+			if (res != null) return res;
+		}
+
+		// Measure outside the lock, so that layouts running on several threads don't queue up behind each other
+		var res = new RenderedText(text);
+		synchronized (entries) {
+			entries.put(text, res);
+		}
+		return res;
+	}
+
+	public class RenderedText {
+		/**
+		 * The size of the text as measured by {@link GraphicsUtil#getRenderedStringSize}
+		 */
+		public final int width, height;
+
+		private final String text;
+
+		// Shaped the first time the text is drawn, since layouts measure far more text than is ever on screen
+		private TextLayout layout = null;
+
+		private RenderedText (String text) {
+			var size = GraphicsUtil.getRenderedStringSize(text, font);
+			this.text = text;
+			width = size.width;
+			height = size.height;
+		}
+
+		/**
+		 * Draws the text with its baseline starting at (x, y)
+		 */
+		public void draw (Graphics2D graphics, float x, float y) {
+			if (text.isEmpty()) return;  // TextLayout can't handle the empty string
+			if (layout == null)
+				layout = new TextLayout(GraphicsUtil.withFallbackFont(text, font, fallbackFont).getIterator(), RENDER_CONTEXT);
+			layout.draw(graphics, x, y);
+		}
+	}
+}
@@ -1,51 +1,98 @@
 package values;
 
 import org.jetbrains.annotations.NotNull;
-import util.Log;
 
-import java.util.*;
-
-@SuppressWarnings("unused")
 public class NumberOrString implements Comparable<NumberOrString> {
-	public final Object value;
 	private final type t;
 
+	// Numbers are stored unboxed so that comparisons never have to allocate or unbox.
+	// Ints are kept in longVal as well as doubleVal so int-int comparisons stay exact and cheap
+	private final long longVal;
+	private final double doubleVal;
+
+	// The text that mixed number/string comparisons are done on, and a sort key made from its first few chars.
+	// Strings compute these up front, numbers only when they are first compared against a string
+	private volatile String stringVal;
+	private long sortKey;
+
 	private enum type {I, D, S}
 
+	private static final int SORT_KEY_CHARS = Long.SIZE / Character.SIZE;
+
 	public NumberOrString (int i) {
-		value = i;
 		t = type.I;
+		longVal = i;
+		doubleVal = i;
 	}
 
 	public NumberOrString (double d) {
-		value = d;
 		t = type.D;
+		longVal = 0;
+		doubleVal = d;
 	}
 
 	NumberOrString (String s) {
-		value = s;
 		t = type.S;
+		longVal = 0;
+		doubleVal = 0;
+		sortKey = makeSortKey(s);
+		stringVal = s;
+	}
+
+	/**
+	 * @return A string value, for code that generates values rather than reading them through {@link Tokenizer}
+	 */
+	public static NumberOrString ofString (String s) {
+		return new NumberOrString(s);
+	}
+
+	/**
+	 * Packs the first {@link #SORT_KEY_CHARS} chars of a string into a long, so that comparing two keys as unsigned
+	 * longs gives the same sign as {@link String#compareTo} whenever the keys differ
+	 */
+	private static long makeSortKey (String s) {
+		long key = 0;
+		for (int i = 0; i < SORT_KEY_CHARS; i++) {
+			key = key << Character.SIZE | (i < s.length() ? s.charAt(i) : 0);
+		}
+		return key;
 	}
 
 	@Override
 	public int compareTo (@NotNull NumberOrString o) {
-		return !isString() && !o.isString()
-		       ? Double.compare(getDoubleVal(), o.getDoubleVal())
-		       : getStringVal().equals(o.getStringVal())
-		         ? t.ordinal() - o.t.ordinal()
-		         : (getStringVal()).compareTo(o.getStringVal());
+		if (t != type.S && o.t != type.S) {
+			return t == type.I && o.t == type.I
+			       ? Long.compare(longVal, o.longVal)
+			       : Double.compare(doubleVal, o.doubleVal);
+		}
+
+		String a = getStringVal(), b = o.getStringVal();
+
+		// Equal keys only mean the strings share a prefix, so fall back to the full comparison
+		int compare = Long.compareUnsigned(sortKey, o.sortKey);
+		if (compare == 0) compare = a.compareTo(b);
+
+		return compare != 0 ? compare : t.ordinal() - o.t.ordinal();
 	}
 
 	@Override
 	public String toString () {
-		return t == type.S ? "\"" + value.toString() + "\"" : value.toString();
+		return t == type.S ? "\"" + stringVal + "\"" : getStringVal();
 	}
 
 	public double getDoubleVal () {
-		return t == type.I ? Double.valueOf((int) value) : (Double) value;
+		return doubleVal;
 	}
 
-	public String getStringVal() { return value.toString(); }
+	public String getStringVal () {
+		String s = stringVal;
+		if (s == null) {
+			s = t == type.I ? Long.toString(longVal) : Double.toString(doubleVal);
+			sortKey = makeSortKey(s);
+			stringVal = s;  // Volatile write publishes sortKey along with it
+		}
+		return s;
+	}
 
 	public boolean isNumber() {
 		return t != type.S;
@@ -54,24 +101,4 @@ public class NumberOrString implements Comparable<NumberOrString> {
 	public boolean isString () {
 		return t == type.S;
 	}
-
-	public static NumberOrString fromStringString (String str) {
-		return str == null ? null : new NumberOrString(str.substring(1, str.length() - 1).replaceAll("\\\\(.)", "$1"));
-	}
-
-	public static NumberOrString getFromScanner (Scanner scan){
-		String STRING_MATCHING_REGEX = "\"([^\"\\\\]|\\\\.){1,10}\"|'([^'\\\\]|\\\\.){1,10}'";
-
-		NumberOrString v;
-		String vs;
-
-		if (scan.hasNextInt()) {
-			return new NumberOrString(scan.nextInt());
-		} else if (scan.hasNextDouble()) {
-			return new NumberOrString(scan.nextDouble());
-		} else if ((v = NumberOrString.fromStringString(scan.findInLine(STRING_MATCHING_REGEX))) != null) {
-			return v;
-		}
-		return null;
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,329 @@
+package values;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Splits commands into whitespace separated tokens and parses values out of them in a single pass, without regexes
+ * or intermediate strings. Tokens never span lines: {@link #hasNext()} returns false at the end of each line until
+ * {@link #nextLine()} moves on to the next one, so a whole script can be read with one tokenizer.
+ */
+public class Tokenizer {
+	/**
+	 * The longest string literal accepted by {@link #nextValue()}
+	 */
+	public static final int MAX_STRING_LENGTH = 10;
+
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private CharSequence input;
+	private int pos, end;
+
+	// Result of the last call to parseNumber
+	private boolean parsedInt;
+	private int intVal;
+	private double doubleVal;
+
+	// The token parseNumber was last run on by parseNext, and whether it was a number, so that hasNextInt() then
+	// nextInt() only parses the token once. parsedPos is -1 when nothing has been parsed since the last reset
+	private int parsedPos = -1, parsedEnd;
+	private boolean parsedNumber;
+
+	public Tokenizer (CharSequence input) {
+		setInput(input);
+	}
+
+	/**
+	 * @param bytes ASCII or Latin-1 text. Read from its current position to its limit without being decoded first
+	 */
+	public Tokenizer (ByteBuffer bytes) {
+		this(new ByteChars(bytes, bytes.position(), bytes.remaining()));
+	}
+
+	/**
+	 * Starts reading from the beginning of new input, so one tokenizer can be reused for many lines
+	 *
+	 * @return itself
+	 */
+	public Tokenizer reset (CharSequence input) {
+		setInput(input);
+		return this;
+	}
+
+	private void setInput (CharSequence input) {
+		this.input = input;
+		this.pos = 0;
+		this.end = input.length();
+		this.parsedPos = -1;
+	}
+
+	private static boolean isSpace (char c) {
+		return c != '\n' && Character.isWhitespace(c);
+	}
+
+	private void skipSpaces () {
+		while (pos < end && isSpace(input.charAt(pos))) pos++;
+	}
+
+	/**
+	 * @return the index just past the token starting at the current position
+	 */
+	private int tokenEnd () {
+		int i = pos;
+		while (i < end && !Character.isWhitespace(input.charAt(i))) i++;
+		return i;
+	}
+
+	/**
+	 * @return whether there is another token on the current line
+	 */
+	public boolean hasNext () {
+		skipSpaces();
+		return pos < end && input.charAt(pos) != '\n';
+	}
+
+	/**
+	 * Skips whatever is left of the current line
+	 *
+	 * @return whether there is another line after it
+	 */
+	public boolean nextLine () {
+		while (pos < end && input.charAt(pos++) != '\n') ;
+		return pos < end;
+	}
+
+	/**
+	 * @return the next token as a string
+	 * @throws NoSuchElementException when there are no more tokens on the current line
+	 */
+	public String next () {
+		if (!hasNext()) throw new NoSuchElementException();
+		int e = tokenEnd();
+		String res = input.subSequence(pos, e).toString();
+		pos = e;
+		return res;
+	}
+
+	public boolean hasNextInt () {
+		return hasNext() && parseNext() && parsedInt;
+	}
+
+	/**
+	 * @throws InputMismatchException when the next token is not an int
+	 */
+	public int nextInt () {
+		if (!hasNextInt()) throw new InputMismatchException();
+		pos = parsedEnd;
+		return intVal;
+	}
+
+	public boolean hasNextDouble () {
+		return hasNext() && parseNext();
+	}
+
+	/**
+	 * @throws InputMismatchException when the next token is not a number
+	 */
+	public double nextDouble () {
+		if (!hasNextDouble()) throw new InputMismatchException();
+		pos = parsedEnd;
+		return parsedInt ? intVal : doubleVal;
+	}
+
+	/**
+	 * Reads an int, a double, or a quoted string of 1 to {@link #MAX_STRING_LENGTH} chars
+	 *
+	 * @return the value, or null (without consuming anything) if the next token is none of those
+	 */
+	public NumberOrString nextValue () {
+		return nextValue(MAX_STRING_LENGTH);
+	}
+
+	/**
+	 * Reads an int, a double, or a quoted string
+	 *
+	 * @param maxStringLength The longest string to accept, after escapes are resolved
+	 * @return the value, or null (without consuming anything) if the next token is none of those
+	 */
+	public NumberOrString nextValue (int maxStringLength) {
+		if (!hasNext()) return null;
+
+		char c = input.charAt(pos);
+		if (c == '"' || c == '\'') return nextString(c, maxStringLength);
+
+		if (!parseNext()) return null;
+		pos = parsedEnd;
+		return parsedInt ? new NumberOrString(intVal) : new NumberOrString(doubleVal);
+	}
+
+	/**
+	 * Parses the token at the current position as a number, unless it was the last one parsed. Call after
+	 * {@link #hasNext()}, which skips the spaces before it
+	 *
+	 * @return whether the token is a valid int or double
+	 */
+	private boolean parseNext () {
+		if (parsedPos != pos) {
+			parsedEnd = tokenEnd();
+			parsedNumber = parseNumber(pos, parsedEnd);
+			parsedPos = pos;
+		}
+		return parsedNumber;
+	}
+
+	/**
+	 * Reads a string literal starting at the current position. Backslash escapes the next char
+	 */
+	private NumberOrString nextString (char quote, int maxStringLength) {
+		int i = pos + 1, length = 0;
+		boolean escaped = false;
+
+		// Find the closing quote first, so the common case (no escapes) can be copied out directly
+		for (; i < end; i++, length++) {
+			char c = input.charAt(i);
+			if (c == quote || c == '\n') break;
+			if (c == '\\' && i + 1 < end) {
+				escaped = true;
+				i++;
+			}
+		}
+		if (i >= end || input.charAt(i) != quote || length == 0 || length > maxStringLength) return null;
+
+		String s;
+		if (escaped) {
+			StringBuilder sb = new StringBuilder(length);
+			for (int j = pos + 1; j < i; j++) {
+				char c = input.charAt(j);
+				sb.append(c == '\\' ? input.charAt(++j) : c);
+			}
+			s = sb.toString();
+		} else {
+			s = input.subSequence(pos + 1, i).toString();
+		}
+
+		pos = i + 1;
+		return new NumberOrString(s);
+	}
+
+	/**
+	 * Parses the chars in [start, end) as a number. On success, the result is left in {@link #parsedInt} and
+	 * {@link #intVal} or {@link #doubleVal}
+	 *
+	 * @return whether the whole range is a valid int or double
+	 */
+	private boolean parseNumber (int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+'))
+			negative = input.charAt(i++) == '-';
+
+		if (matches(i, end, "NaN") || matches(i, end, "Infinity")) {
+			parsedInt = false;
+			doubleVal = Double.parseDouble(input.subSequence(start, end).toString());
+			return true;
+		}
+
+		// Digits past the 18th don't fit in the mantissa. They only shift the exponent (and force the slow path below)
+		long mantissa = 0;
+		int digits = 0, significantDigits = 0, exponent = 0;
+		boolean fraction = false, hasExponent = false;
+
+		for (; i < end; i++) {
+			char c = input.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (mantissa != 0 || c != '0') significantDigits++;
+				if (significantDigits <= 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (fraction) exponent--;
+				} else if (!fraction) exponent++;
+			} else if (c == '.' && !fraction) {
+				fraction = true;
+			} else break;
+		}
+		if (digits == 0) return false;
+
+		if (i < end && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+			hasExponent = true;
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (input.charAt(i) == '-' || input.charAt(i) == '+'))
+				negativeExponent = input.charAt(i++) == '-';
+
+			int e = 0, expDigits = 0;
+			for (; i < end && input.charAt(i) >= '0' && input.charAt(i) <= '9'; i++, expDigits++) {
+				if (e < 100000) e = e * 10 + (input.charAt(i) - '0');
+			}
+			if (expDigits == 0) return false;
+			exponent += negativeExponent ? -e : e;
+		}
+		if (i != end) return false;
+
+		if (!fraction && !hasExponent && significantDigits <= 10) {
+			long v = negative ? -mantissa : mantissa;
+			if (v >= Integer.MIN_VALUE && v <= Integer.MAX_VALUE) {
+				parsedInt = true;
+				intVal = (int) v;
+				return true;
+			}
+		}
+
+		parsedInt = false;
+		if (significantDigits <= 15 && Math.abs(exponent) < POWERS_OF_TEN.length) {
+			// Both the mantissa and the power of ten are exact doubles, so a single multiply or divide rounds correctly
+			double d = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+			doubleVal = negative ? -d : d;
+		} else {
+			doubleVal = Double.parseDouble(input.subSequence(start, end).toString());
+		}
+		return true;
+	}
+
+	private boolean matches (int start, int end, String word) {
+		if (end - start != word.length()) return false;
+		for (int i = 0; i < word.length(); i++) {
+			if (input.charAt(start + i) != word.charAt(i)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * A view of a range of bytes as Latin-1 chars
+	 */
+	private static class ByteChars implements CharSequence {
+		private final ByteBuffer bytes;
+		private final int offset, length;
+
+		ByteChars (ByteBuffer bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		@Override
+		public int length () {
+			return length;
+		}
+
+		@Override
+		public char charAt (int index) {
+			return (char) (bytes.get(offset + index) & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence (int start, int end) {
+			return new ByteChars(bytes, offset + start, end - start);
+		}
+
+		@Override
+		public String toString () {
+			byte[] res = new byte[length];
+			bytes.get(offset, res);
+			return new String(res, StandardCharsets.ISO_8859_1);
+		}
+	}
+}